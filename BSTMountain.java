@@ -1,6 +1,22 @@
 package project5;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class is an implementation of a balanced binary search tree using AVL
@@ -16,10 +32,37 @@ import java.util.*;
 
 public class BSTMountain<T extends Comparable<RestStop>> {
 
+	// first bytes and format version of files written by writeSnapshot
+	private static final int SNAPSHOT_MAGIC = 0x4D544E53;
+	private static final int SNAPSHOT_VERSION = 1;
+	// bytes of a node record: children, height, and five counts
+	private static final int SNAPSHOT_RECORD_BYTES = 2 + 5 * 4;
+
+	// outcomes of passing a rest stop with supplies kept as primitives
+	static final int PASSED = 0;
+	static final int BLOCKED_BY_TREE = 1;
+	static final int BLOCKED_BY_RIVER = 2;
+
 	private BSTNode root; // reference to the root node of the tree
 	private int size;
 
-	private boolean added; // helper variable used by the add method
+	// subtrees shorter than this are traversed sequentially by traverseParallel
+	private int parallelThreshold = 8;
+
+	private MountainMetrics metrics = new MountainMetrics();
+
+	// number of changes made by add, addAll, and updateStop or the setters of
+	// the rest stops in this tree
+	private long modifications;
+
+	// paths found by cachedPaths for a hiker with the cached supplies
+	private List<List<RestStop>> cached;
+	private boolean cacheValid;
+	private int cachedFood;
+	private int cachedRaft;
+	private int cachedAxe;
+	// nodes whose rest stops changed since the cached paths were found
+	private Set<BSTNode> changed = Collections.newSetFromMap(new IdentityHashMap<>());
 
 	/**
 	 * Constructs a new, empty tree, sorted according to the natural ordering of its
@@ -41,15 +84,294 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 	 * @throws NullPointerException if the specified element is null
 	 */
 	public boolean add(RestStop data) {
-		added = false;
 		if (data == null)
 			throw new NullPointerException("null value found");
 		// replace root with the reference to the tree after the new
-		// value is added
+		// value is added; the size only grows if the value was not a duplicate
+		int before = size;
 		root = add(data, root);
+		boolean added = size != before;
+		if (added) {
+			cacheValid = false;
+			modifications++;
+			metrics.recordInserts(1);
+		} else {
+			metrics.recordDuplicates(1);
+		}
+		metrics.recordHeight(root.height);
+		return added;
+	}
+
+	/**
+	 * Creates a new tree containing the specified elements. Instead of adding the
+	 * elements one at a time, the elements are sorted (unless they already are)
+	 * and the balanced tree is built directly from the middle out, so no
+	 * rotations are needed. If several elements have the same label, only the
+	 * first one is kept, as it would be by add.
+	 *
+	 * @param stops elements to be added to the new tree
+	 * @return new tree containing the specified elements
+	 * @throws NullPointerException if any of the specified elements is null
+	 */
+	public static BSTMountain<RestStop> bulkLoad(Collection<RestStop> stops) {
+		List<RestStop> sorted = sortUnique(stops);
+
+		BSTMountain<RestStop> mountain = new BSTMountain<>();
+		MountainMetrics.Snapshot before = mountain.metrics.snapshot();
+		MountainMetrics.BuildEvent event = new MountainMetrics.BuildEvent();
+		event.begin();
+		mountain.root = mountain.build(sorted, 0, sorted.size() - 1);
+		mountain.size = sorted.size();
+		mountain.metrics.recordInserts(sorted.size());
+		mountain.metrics.recordDuplicates(stops.size() - sorted.size());
+		mountain.metrics.recordHeight(sorted.isEmpty() ? -1 : mountain.root.height);
+		mountain.metrics.record(event, before);
+		return mountain;
+	}
+
+	/**
+	 * Returns the specified elements sorted (unless they already are) and without
+	 * duplicates. If several elements have the same label, only the first one is
+	 * kept, as it would be by add.
+	 *
+	 * @param stops elements to sort
+	 * @return new sorted list of the elements without duplicates
+	 * @throws NullPointerException if any of the specified elements is null
+	 */
+	private static List<RestStop> sortUnique(Collection<RestStop> stops) {
+		ArrayList<RestStop> sorted = new ArrayList<>(stops);
+		for (int i = 0; i < sorted.size(); i++) {
+			if (sorted.get(i) == null) {
+				throw new NullPointerException("null value found");
+			}
+		}
+
+		// the sort is stable, so the first of several equal elements stays first
+		boolean presorted = true;
+		for (int i = 1; i < sorted.size() && presorted; i++) {
+			presorted = sorted.get(i - 1).compareTo(sorted.get(i)) <= 0;
+		}
+		if (!presorted) {
+			Collections.sort(sorted);
+		}
+
+		// drop duplicates
+		int unique = 0;
+		for (int i = 0; i < sorted.size(); i++) {
+			if (unique == 0 || sorted.get(unique - 1).compareTo(sorted.get(i)) != 0) {
+				sorted.set(unique++, sorted.get(i));
+			}
+		}
+		return sorted.subList(0, unique);
+	}
+
+	/**
+	 * Adds a batch of elements to this tree, skipping the ones that are already
+	 * present, as add would. Instead of descending from the root once per element,
+	 * the batch is sorted and merged into the tree in one pass: each node splits
+	 * the sorted batch into the elements that go to its left and to its right,
+	 * subtrees that receive no elements are left untouched, an empty subtree is
+	 * replaced by a balanced tree built from its elements, and the two merged
+	 * halves are joined back under the node, rotating only where their heights
+	 * differ by more than one.
+	 *
+	 * @param stops elements to be added to this tree
+	 * @return the number of elements that were added
+	 * @throws NullPointerException if any of the specified elements is null
+	 */
+	public int addAll(List<RestStop> stops) {
+		List<RestStop> sorted = sortUnique(stops);
+		MountainMetrics.Snapshot before = metrics.snapshot();
+		MountainMetrics.BuildEvent event = new MountainMetrics.BuildEvent();
+		event.begin();
+
+		int oldSize = size;
+		root = merge(root, sorted, 0, sorted.size() - 1);
+		int added = size - oldSize;
+
+		if (added > 0) {
+			cacheValid = false;
+			modifications++;
+		}
+		metrics.recordInserts(added);
+		metrics.recordDuplicates(stops.size() - added);
+		metrics.recordHeight(root == null ? -1 : root.height);
+		metrics.record(event, before);
 		return added;
 	}
 
+	/**
+	 * Recursive implementation of addAll. Merges a range of sorted elements
+	 * without duplicates into the subtree rooted at the node.
+	 *
+	 * @param node   root of the subtree
+	 * @param sorted sorted list of elements without duplicates
+	 * @param lo     index of the first element of the range
+	 * @param hi     index of the last element of the range
+	 * @return root of the merged subtree
+	 */
+	private BSTNode merge(BSTNode node, List<RestStop> sorted, int lo, int hi) {
+		if (lo > hi) {
+			return node;
+		}
+		if (node == null) {
+			size += hi - lo + 1;
+			return build(sorted, lo, hi);
+		}
+
+		// find the first element of the range that is not less than the node
+		int a = lo;
+		int b = hi + 1;
+		while (a < b) {
+			int mid = (a + b) >>> 1;
+			if (node.data.compareTo(sorted.get(mid)) > 0) {
+				a = mid + 1;
+			} else {
+				b = mid;
+			}
+		}
+		// an element equal to the node is a duplicate and is skipped
+		int next = a <= hi && node.data.compareTo(sorted.get(a)) == 0 ? a + 1 : a;
+
+		BSTNode left = merge(node.left, sorted, lo, a - 1);
+		BSTNode right = merge(node.right, sorted, next, hi);
+		return join(left, node, right);
+	}
+
+	/**
+	 * Joins two AVL subtrees under a middle node. Every element of the left
+	 * subtree must be less than the middle node, and every element of the right
+	 * subtree greater than it. If the subtrees are too different in height, the
+	 * middle node is joined in along the inner edge of the taller one.
+	 *
+	 * @param left   left subtree, may be null
+	 * @param middle node to be placed between the subtrees
+	 * @param right  right subtree, may be null
+	 * @return root of the joined tree
+	 */
+	private BSTNode join(BSTNode left, BSTNode middle, BSTNode right) {
+		if (height(left) > height(right) + 1) {
+			return joinRight(left, middle, right);
+		}
+		if (height(right) > height(left) + 1) {
+			return joinLeft(left, middle, right);
+		}
+		middle.left = left;
+		middle.right = right;
+		updateHeight(middle);
+		return middle;
+	}
+
+	/**
+	 * Joins a shorter right subtree into a taller left subtree by walking down the
+	 * right edge of the left subtree until the heights are close enough.
+	 *
+	 * @param left   taller left subtree
+	 * @param middle node to be placed between the subtrees
+	 * @param right  shorter right subtree, may be null
+	 * @return root of the joined tree
+	 */
+	private BSTNode joinRight(BSTNode left, BSTNode middle, BSTNode right) {
+		if (height(left.right) <= height(right) + 1) {
+			middle.left = left.right;
+			middle.right = right;
+			updateHeight(middle);
+			left.right = middle;
+			updateHeight(left);
+			if (height(middle) > height(left.left) + 1) {
+				// RL rotation
+				metrics.recordRL();
+				return balanceRL(left);
+			}
+			return left;
+		}
+
+		left.right = joinRight(left.right, middle, right);
+		updateHeight(left);
+		if (balanceFactor(left) == 2) {
+			// RR rotation
+			metrics.recordRR();
+			return balanceRR(left);
+		}
+		return left;
+	}
+
+	/**
+	 * Joins a shorter left subtree into a taller right subtree by walking down the
+	 * left edge of the right subtree until the heights are close enough.
+	 *
+	 * @param left   shorter left subtree, may be null
+	 * @param middle node to be placed between the subtrees
+	 * @param right  taller right subtree
+	 * @return root of the joined tree
+	 */
+	private BSTNode joinLeft(BSTNode left, BSTNode middle, BSTNode right) {
+		if (height(right.left) <= height(left) + 1) {
+			middle.left = left;
+			middle.right = right.left;
+			updateHeight(middle);
+			right.left = middle;
+			updateHeight(right);
+			if (height(middle) > height(right.right) + 1) {
+				// LR rotation
+				metrics.recordLR();
+				return balanceLR(right);
+			}
+			return right;
+		}
+
+		right.left = joinLeft(left, middle, right.left);
+		updateHeight(right);
+		if (balanceFactor(right) == -2) {
+			// LL rotation
+			metrics.recordLL();
+			return balanceLL(right);
+		}
+		return right;
+	}
+
+	/**
+	 * Returns the height of a subtree.
+	 *
+	 * @param node root of the subtree
+	 * @return the height of the subtree, or -1 if it is empty
+	 */
+	private int height(BSTNode node) {
+		return node == null ? -1 : node.height;
+	}
+
+	/**
+	 * Returns the number of nodes in a subtree.
+	 *
+	 * @param node root of the subtree
+	 * @return the number of nodes in the subtree, or 0 if it is empty
+	 */
+	private int count(BSTNode node) {
+		return node == null ? 0 : node.count;
+	}
+
+	/**
+	 * Builds a balanced subtree out of a range of sorted elements. The middle
+	 * element becomes the root of the subtree, so the heights of its two halves
+	 * differ by at most one.
+	 *
+	 * @param sorted sorted list of elements without duplicates
+	 * @param lo     index of the first element of the range
+	 * @param hi     index of the last element of the range
+	 * @return root of the subtree, or null if the range is empty
+	 */
+	private BSTNode build(List<RestStop> sorted, int lo, int hi) {
+		if (lo > hi) {
+			return null;
+		}
+		int mid = (lo + hi) >>> 1;
+		BSTNode node = new BSTNode(sorted.get(mid));
+		node.left = build(sorted, lo, mid - 1);
+		node.right = build(sorted, mid + 1, hi);
+		updateHeight(node);
+		return node;
+	}
+
 	/**
 	 * Actual recursive implementation of add.
 	 *
@@ -61,7 +383,6 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 	 */
 	private BSTNode add(RestStop data, BSTNode node) {
 		if (node == null) {
-			added = true;
 			this.size++;
 			return new BSTNode(data);
 		}
@@ -76,7 +397,6 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 			node.right = add(data, node.right);
 			updateHeight(node.right);
 		} else { // duplicate found, do not add
-			added = false;
 			// return node;
 		}
 
@@ -87,18 +407,22 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 			if (balanceFactor(node.left) == 1) {
 				// LR rotation
 				node = balanceLR(node);
+				metrics.recordLR();
 			} else {
 				// LL rotation
 				node = balanceLL(node);
+				metrics.recordLL();
 			}
 		}
 		if (balanceFactor(node) == 2) {
 			if (balanceFactor(node.right) == -1) {
 				// RL rotation
 				node = balanceRL(node);
+				metrics.recordRL();
 			} else {
 				// RR rotation
 				node = balanceRR(node);
+				metrics.recordRR();
 			}
 		}
 
@@ -106,7 +430,8 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 	}
 
 	/**
-	 * Updates the height of the node based off its children
+	 * Updates the height of the node based off its children, along with the
+	 * number of nodes in its subtree
 	 *
 	 * @param node node whose height will be updated
 	 */
@@ -131,6 +456,170 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 		else {
 			node.height = 1 + Math.max(node.left.height, node.right.height);
 		}
+
+		node.count = 1 + count(node.left) + count(node.right);
+		updateBounds(node);
+	}
+
+	/**
+	 * Updates the supplies that a hiker needs to reach the bottom of the subtree
+	 * rooted at the node. Only the paths to the deepest leaves of the subtree are
+	 * considered, since those are the only leaves that can be at the bottom of the
+	 * mountain. The bounds are computed from the node's children, so they stay
+	 * correct as long as this method is called on every node whose children
+	 * change, from the bottom of the tree up.
+	 *
+	 * The bounds assume that no supply or obstacle count is negative; subtrees that
+	 * contain negative counts are flagged and are never pruned.
+	 *
+	 * Rest stops already in the tree may be changed through their setters. Every
+	 * rest stop knows the trees that hold it and tells them through stopChanged,
+	 * which updates the bounds of the ancestors of the changed rest stop, so
+	 * traversals never have to check the bounds themselves.
+	 *
+	 * The gains are the most of each supply that a hiker can end up with, relative
+	 * to what it has on arrival, after going from the node to a deepest leaf of
+	 * the subtree. Each supply is maximized on its own, so the gains together may
+	 * be more than any single path gives.
+	 *
+	 * @param node node whose bounds will be updated
+	 */
+	private void updateBounds(BSTNode node) {
+		RestStop r = node.data;
+		node.negative = r.getFood() < 0 || r.getRaft() < 0 || r.getAxe() < 0 || r.getFallenTree() < 0
+				|| r.getRiver() < 0;
+
+		// leaves have no children to reach
+		long food = 0;
+		long raft = 0;
+		long axe = 0;
+		long gainFood = 0;
+		long gainRaft = 0;
+		long gainAxe = 0;
+		if (node.left != null || node.right != null) {
+			food = Long.MAX_VALUE;
+			raft = Long.MAX_VALUE;
+			axe = Long.MAX_VALUE;
+			gainFood = Long.MIN_VALUE;
+			gainRaft = Long.MIN_VALUE;
+			gainAxe = Long.MIN_VALUE;
+			if (node.left != null) {
+				node.negative |= node.left.negative;
+				if (node.left.height == node.height - 1) {
+					food = node.left.minFood;
+					raft = node.left.minRaft;
+					axe = node.left.minAxe;
+					gainFood = node.left.gainFood;
+					gainRaft = node.left.gainRaft;
+					gainAxe = node.left.gainAxe;
+				}
+			}
+			if (node.right != null) {
+				node.negative |= node.right.negative;
+				if (node.right.height == node.height - 1) {
+					food = Math.min(food, node.right.minFood);
+					raft = Math.min(raft, node.right.minRaft);
+					axe = Math.min(axe, node.right.minAxe);
+					gainFood = Math.max(gainFood, node.right.gainFood);
+					gainRaft = Math.max(gainRaft, node.right.gainRaft);
+					gainAxe = Math.max(gainAxe, node.right.gainAxe);
+				}
+			}
+			// food cannot run out at this node and one food is used to get to a child
+			food += 1;
+			gainFood -= 1;
+		}
+
+		node.minFood = clamp(food - r.getFood());
+		node.minRaft = clamp(raft + Math.max(r.getRiver(), 0) - r.getRaft());
+		node.minAxe = clamp(axe + Math.max(r.getFallenTree(), 0) - r.getAxe());
+
+		node.gainFood = gainFood + r.getFood();
+		node.gainRaft = gainRaft + r.getRaft() - Math.max(r.getRiver(), 0);
+		node.gainAxe = gainAxe + r.getAxe() - Math.max(r.getFallenTree(), 0);
+	}
+
+	/**
+	 * Brings the bounds up to date after the supplies or obstacles of a rest stop
+	 * in this tree were changed. Only the ancestors of the rest stop depend on
+	 * it, so only their bounds are computed again, and the rest stop is
+	 * remembered so that cachedPaths only needs to explore the part of the
+	 * mountain below it again. If the rest stop cannot be found by its label,
+	 * because the label was changed as well, the bounds of the whole tree are
+	 * computed again instead.
+	 *
+	 * Changing a rest stop changes the tree, so it must not be done while another
+	 * thread is using the tree.
+	 *
+	 * @param stop rest stop that was changed
+	 */
+	void stopChanged(RestStop stop) {
+		List<BSTNode> ancestors = pathTo(stop);
+		if (ancestors != null && ancestors.get(ancestors.size() - 1).data == stop) {
+			// the bounds of a node depend on its own rest stop and on its children
+			for (int i = ancestors.size() - 1; i >= 0; i--) {
+				updateBounds(ancestors.get(i));
+			}
+			if (cacheValid) {
+				changed.add(ancestors.get(ancestors.size() - 1));
+			}
+		} else {
+			if (root != null) {
+				recomputeBounds(root);
+			}
+			cacheValid = false;
+		}
+		modifications++;
+	}
+
+	/**
+	 * Computes the bounds of every node of a subtree again, from the bottom up.
+	 *
+	 * @param node root of the subtree
+	 */
+	private void recomputeBounds(BSTNode node) {
+		if (node.left != null) {
+			recomputeBounds(node.left);
+		}
+		if (node.right != null) {
+			recomputeBounds(node.right);
+		}
+		updateBounds(node);
+	}
+
+	/**
+	 * Limits a bound computed by updateBounds to the range of supplies that a
+	 * hiker can carry.
+	 *
+	 * @param value bound to limit
+	 * @return value limited to the range zero to Integer.MAX_VALUE
+	 */
+	private static int clamp(long value) {
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, value));
+	}
+
+	/**
+	 * Determines whether a hiker arriving at the node cannot possibly reach the
+	 * bottom of the mountain through it. A subtree contains a leaf at the bottom
+	 * of the mountain only if its deepest leaves are at the bottom, that is, if
+	 * the depth of the node plus its height is the height of the tree. Otherwise
+	 * the hiker can only end up at a cliff.
+	 *
+	 * @param node  node that the hiker is moving onto
+	 * @param depth depth of the node
+	 * @param food  food the hiker has when it gets to the node
+	 * @param raft  rafts the hiker has when it gets to the node
+	 * @param axe   axes the hiker has when it gets to the node
+	 * @return true if no path through the node reaches the bottom of the mountain
+	 */
+	private boolean hopeless(BSTNode node, int depth, int food, int raft, int axe) {
+		if (depth + node.height != root.height) {
+			return true;
+		}
+		if (node.negative || food < 0 || raft < 0 || axe < 0) {
+			return false;
+		}
+		return food < node.minFood || raft < node.minRaft || axe < node.minAxe;
 	}
 
 	/**
@@ -252,8 +741,49 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 	 * @param h Hiker object that traverses down the mountain
 	 */
 	public void traverse(Hiker h) {
-		ArrayList<String> path = new ArrayList<>();
-		traverseRec(h, this.root, path);
+		traverse(h, found -> {
+			for (int i = 0; i < found.size(); i++) {
+				System.out.print(found.get(i).getLabel() + " ");
+			}
+			System.out.println();
+		});
+	}
+
+	/**
+	 * Explores the same paths as the traverse method, but hands every path that
+	 * reaches the bottom of the mountain to the specified sink instead of
+	 * displaying it.
+	 *
+	 * @param h    Hiker object that traverses down the mountain
+	 * @param sink receives the paths that reach the bottom of the mountain
+	 */
+	public void traverse(Hiker h, PathSink sink) {
+		if (root == null) {
+			return;
+		}
+		MountainMetrics.TraverseEvent event = new MountainMetrics.TraverseEvent();
+		event.begin();
+		MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+		ArrayList<RestStop> path = new ArrayList<>();
+		traverseRec(h, this.root, path, sink, counts);
+		metrics.record(counts, event);
+	}
+
+	/**
+	 * Returns the paths that reach the bottom of the mountain as a stream. The
+	 * paths are found lazily, in the order in which traverse would display them,
+	 * so a caller that stops consuming the stream early does not pay for the rest
+	 * of the mountain. The traversal is recorded in the metrics of this tree once
+	 * every path has been consumed or the stream is closed.
+	 *
+	 * @param h Hiker object that traverses down the mountain
+	 * @return stream of the paths that reach the bottom of the mountain
+	 */
+	public Stream<List<RestStop>> paths(Hiker h) {
+		PathIterator iterator = new PathIterator(h);
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(iterator.descent::finish);
 	}
 
 	/**
@@ -263,12 +793,78 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 	 * mountain or cannot progress any further due to insufficient supplies.
 	 *
 	 *
-	 * @param h    Hiker object that traverses down the mountain
-	 * @param node node that the hiker is at
-	 * @param path path that the hiker is currently on
+	 * @param h      Hiker object that traverses down the mountain
+	 * @param node   node that the hiker is at
+	 * @param path   path that the hiker is currently on
+	 * @param sink   receives every path that reaches the bottom of the mountain
+	 * @param counts counters of this traversal
 	 */
-	private void traverseRec(Hiker h, BSTNode node, ArrayList<String> path) {
+	private void traverseRec(Hiker h, BSTNode node, ArrayList<RestStop> path, PathSink sink,
+			MountainMetrics.Traversal counts) {
+
+		// skip subtrees that only lead to cliffs or that the hiker cannot get through
+		int food = node == root ? h.getFood() : h.getFood() - 1;
+		if (hopeless(node, path.size(), food, h.getRaft(), h.getAxe())) {
+			counts.prunedByBounds++;
+			return;
+		}
+
+		if (!arrive(h, node, counts)) {
+			return;
+		}
+
+		RestStop r = node.data;
+
+		path.add(r);
+		// checks if end of path has been reached
+		if (node.left == null && node.right == null) {
+			// check if it is a cliff or bottom of mountain
+			if (path.size() == root.height + 1) {
+				counts.bottoms++;
+				sink.accept(path);
+			} else {
+				counts.cliffs++;
+			}
+			path.remove(path.size() - 1);
+			return;
+		}
+
+		// hiker cannot progress if he has no food
+		if (h.getFood() == 0) {
+			counts.prunedByFood++;
+			path.remove(path.size() - 1);
+			return;
+		}
+
+		// this variable allows a hiker with the same data fields to be passed
+		// into both calls to node.left and node.right
+		// credit to classmate Harry Minsky for the idea
+		Hiker duplicate = copyOf(h);
+
+		if (node.left != null) {
+			traverseRec(h, node.left, path, sink, counts);
+		}
+
+		if (node.right != null) {
+			traverseRec(duplicate, node.right, path, sink, counts);
+		}
+
+		path.remove(path.size() - 1);
 
+	}
+
+	/**
+	 * Moves the hiker onto the specified node. The hiker uses one food to get to
+	 * any node other than the root, picks up the supplies stored at the node, and
+	 * then uses axes and rafts to pass its obstacles.
+	 *
+	 * @param h      Hiker object that traverses down the mountain
+	 * @param node   node that the hiker is moving onto
+	 * @param counts counters of the traversal
+	 * @return true if the hiker was able to pass the obstacles at the node
+	 */
+	private boolean arrive(Hiker h, BSTNode node, MountainMetrics.Traversal counts) {
+		counts.nodesVisited++;
 		if (node != root) {
 			// hiker uses one food resource at each traversal call
 			h.setFood(h.getFood() - 1);
@@ -284,83 +880,1676 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 		// process obstacles
 		if (r.getFallenTree() > 0) {
 			if (h.getAxe() < r.getFallenTree()) {
-				return;
+				counts.prunedByAxe++;
+				return false;
 			} else {
 				h.setAxe(h.getAxe() - r.getFallenTree());
 			}
 		}
 		if (r.getRiver() > 0) {
 			if (h.getRaft() < r.getRiver()) {
-				return;
+				counts.prunedByRaft++;
+				return false;
 			} else {
 				h.setRaft(h.getRaft() - r.getRiver());
 			}
 		}
+		return true;
+	}
 
-		path.add(r.getLabel());
-		// checks if end of path has been reached
-		if (node.left == null && node.right == null) {
-			// check if it is a cliff or bottom of mountain
-			if (path.size() == root.height + 1) {
-				for (int i = 0; i < path.size(); i++) {
-					System.out.print(path.get(i) + " ");
-				}
-				System.out.println();
-				path.remove(r.getLabel());
-				return;
-			} else {
-				path.remove(r.getLabel());
-				return;
-			}
+	/**
+	 * Applies the supplies and obstacles of a rest stop to supplies kept as
+	 * primitives, following the same rules as the arrive method. The hiker picks
+	 * up the supplies stored at the rest stop and then uses axes and rafts to
+	 * pass its obstacles. The supplies left afterwards are stored at the
+	 * specified index of the arrays; if the hiker is blocked, the arrays are left
+	 * unchanged.
+	 *
+	 * @param stop  rest stop that the hiker is moving onto
+	 * @param f     food the hiker has when it gets to the rest stop
+	 * @param r     rafts the hiker has when it gets to the rest stop
+	 * @param a     axes the hiker has when it gets to the rest stop
+	 * @param food  receives the food left after the rest stop
+	 * @param raft  receives the rafts left after the rest stop
+	 * @param axe   receives the axes left after the rest stop
+	 * @param index index of the arrays at which the supplies are stored
+	 * @return PASSED if the hiker got past the rest stop, or BLOCKED_BY_TREE or
+	 *         BLOCKED_BY_RIVER if it did not have enough axes or rafts
+	 */
+	static int pass(RestStop stop, int f, int r, int a, int[] food, int[] raft, int[] axe, int index) {
+		// process supplies
+		f += stop.getFood();
+		r += stop.getRaft();
+		a += stop.getAxe();
 
+		// process obstacles
+		if (stop.getFallenTree() > 0) {
+			if (a < stop.getFallenTree()) {
+				return BLOCKED_BY_TREE;
+			}
+			a -= stop.getFallenTree();
 		}
-
-		// hiker cannot progress if he has no food
-		if (h.getFood() == 0) {
-			path.remove(r.getLabel());
-			return;
+		if (stop.getRiver() > 0) {
+			if (r < stop.getRiver()) {
+				return BLOCKED_BY_RIVER;
+			}
+			r -= stop.getRiver();
 		}
 
-		// this variable allows a hiker with the same data fields to be passed
-		// into both calls to node.left and node.right
-		// credit to classmate Harry Minsky for the idea
+		food[index] = f;
+		raft[index] = r;
+		axe[index] = a;
+		return PASSED;
+	}
+
+	/**
+	 * Returns a new Hiker object carrying the same supplies as the specified
+	 * hiker.
+	 *
+	 * @param h Hiker object to copy
+	 * @return copy of the hiker
+	 */
+	private static Hiker copyOf(Hiker h) {
 		Hiker duplicate = new Hiker();
 		duplicate.setFood(h.getFood());
 		duplicate.setAxe(h.getAxe());
 		duplicate.setRaft(h.getRaft());
-
-		if (node.left != null) {
-			traverseRec(h, node.left, path);
-		}
-
-		if (node.right != null) {
-			traverseRec(duplicate, node.right, path);
-		}
-
-		path.remove(r.getLabel());
-
+		return duplicate;
 	}
 
 	/**
-	 * Returns the number of elements in this tree.
-	 * 
-	 * @return the number of elements in this tree
+	 * Explores the mountain for several hikers at once. The tree is walked a
+	 * single time, and the supplies of the hikers are carried along as lanes of
+	 * primitive arrays, one array per depth. A hiker's lane is dropped at the
+	 * first node it cannot get past, and a subtree is not entered at all once no
+	 * lanes are left, so the node visits are shared by all the hikers that are
+	 * still on the trail. The hikers themselves are not modified.
+	 *
+	 * @param hikers Hiker objects that traverse down the mountain
+	 * @return for each hiker, in the same order, the paths that it can take to the
+	 *         bottom of the mountain, in the order in which traverse would display
+	 *         them
 	 */
-	public int size() {
+	public List<List<List<RestStop>>> traverseBatch(Hiker[] hikers) {
+		List<List<List<RestStop>>> found = new ArrayList<>(hikers.length);
+		for (int i = 0; i < hikers.length; i++) {
+			found.add(new ArrayList<>());
+		}
+		if (root == null || hikers.length == 0) {
+			return found;
+		}
 
-		return this.size;
+		MountainMetrics.TraverseEvent event = new MountainMetrics.TraverseEvent();
+		event.begin();
+		MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+		Lanes lanes = new Lanes(root.height + 2, hikers.length);
+		// the lanes above the root hold the supplies the hikers start with
+		for (int i = 0; i < hikers.length; i++) {
+			lanes.hiker[0][i] = i;
+			lanes.food[0][i] = hikers[i].getFood();
+			lanes.raft[0][i] = hikers[i].getRaft();
+			lanes.axe[0][i] = hikers[i].getAxe();
+		}
+		lanes.count[0] = hikers.length;
+		traverseBatch(root, 0, lanes, new ArrayList<>(), found, counts);
+		metrics.record(counts, event);
+		return found;
 	}
 
 	/**
-	 * Returns the string representation of this BSTMountain.
-	 * 
-	 * @returns the string representation of this BSTMountain object
+	 * Recursive implementation of traverseBatch. The lanes of the hikers arriving
+	 * at the node are stored at the depth of the node, and the lanes of the hikers
+	 * that get past it are stored one level down.
+	 *
+	 * @param node   node that the hikers are moving onto
+	 * @param depth  depth of the node
+	 * @param lanes  supplies of the hikers at every depth
+	 * @param path   path that the hikers are currently on
+	 * @param found  paths found for each hiker
+	 * @param counts counters of the traversal
 	 */
-	public String toStringTree() {
-		StringBuffer sb = new StringBuffer();
-		toStringTree(sb, root, 0);
-		return sb.toString();
-	}
+	private void traverseBatch(BSTNode node, int depth, Lanes lanes, ArrayList<RestStop> path,
+			List<List<List<RestStop>>> found, MountainMetrics.Traversal counts) {
+		int in = lanes.count[depth];
+		// subtrees that only lead to cliffs are skipped for every hiker at once
+		if (depth + node.height != root.height) {
+			counts.prunedByBounds += in;
+			return;
+		}
+		counts.nodesVisited++;
+
+		RestStop r = node.data;
+		int[] hiker = lanes.hiker[depth + 1];
+		int[] food = lanes.food[depth + 1];
+		int[] raft = lanes.raft[depth + 1];
+		int[] axe = lanes.axe[depth + 1];
+		int out = 0;
+		for (int i = 0; i < in; i++) {
+			// hiker uses one food resource to get to any node other than the root
+			int f = node == root ? lanes.food[depth][i] : lanes.food[depth][i] - 1;
+			int rf = lanes.raft[depth][i];
+			int a = lanes.axe[depth][i];
+			if (hopeless(node, depth, f, rf, a)) {
+				counts.prunedByBounds++;
+				continue;
+			}
+
+			int passed = pass(r, f, rf, a, food, raft, axe, out);
+			if (passed == BLOCKED_BY_TREE) {
+				counts.prunedByAxe++;
+				continue;
+			}
+			if (passed == BLOCKED_BY_RIVER) {
+				counts.prunedByRaft++;
+				continue;
+			}
+
+			// hiker cannot progress past an inner node if he has no food
+			if (food[out] == 0 && (node.left != null || node.right != null)) {
+				counts.prunedByFood++;
+				continue;
+			}
+
+			hiker[out] = lanes.hiker[depth][i];
+			out++;
+		}
+		if (out == 0) {
+			return;
+		}
+		lanes.count[depth + 1] = out;
+
+		path.add(r);
+		if (node.left == null && node.right == null) {
+			// the depth check above ensures that this leaf is the bottom of the mountain
+			List<RestStop> complete = Collections.unmodifiableList(new ArrayList<>(path));
+			for (int i = 0; i < out; i++) {
+				found.get(hiker[i]).add(complete);
+			}
+			counts.bottoms += out;
+		} else {
+			// both children start from the lanes left at this node
+			if (node.left != null) {
+				traverseBatch(node.left, depth + 1, lanes, path, found, counts);
+			}
+			if (node.right != null) {
+				traverseBatch(node.right, depth + 1, lanes, path, found, counts);
+			}
+		}
+		path.remove(path.size() - 1);
+	}
+
+	/**
+	 * Supplies of the hikers of traverseBatch, stored by depth and then by lane.
+	 * The first lane count hikers at each depth are still on the trail.
+	 */
+	private static class Lanes {
+
+		final int[] count;
+		final int[][] hiker; // index of the hiker in the array passed to traverseBatch
+		final int[][] food;
+		final int[][] raft;
+		final int[][] axe;
+
+		/**
+		 * Creates the lanes for the specified number of depths and hikers.
+		 *
+		 * @param levels number of depths
+		 * @param width  number of hikers
+		 */
+		Lanes(int levels, int width) {
+			count = new int[levels];
+			hiker = new int[levels][width];
+			food = new int[levels][width];
+			raft = new int[levels][width];
+			axe = new int[levels][width];
+		}
+
+	}
+
+	/**
+	 * Finds the path to the bottom of the mountain after which the hiker is best
+	 * off according to the specified comparator. Instead of exploring every path,
+	 * the search keeps the best path found so far and skips any subtree in which
+	 * even the most supplies that could be gained on the way to its bottom would
+	 * not leave the hiker better off. For this to be correct, the comparator must
+	 * never rank a hiker lower for carrying more of any supply, as is the case for
+	 * example when comparing by food left.
+	 *
+	 * @param h          Hiker object that traverses down the mountain; it is not
+	 *                   modified
+	 * @param comparator orders the hikers left at the bottom of the mountain, the
+	 *                   greatest being the best; it should not keep the hikers it is
+	 *                   given, since they are reused
+	 * @return the best path, or null if the hiker cannot reach the bottom of the
+	 *         mountain; of several equally good paths, the one that traverse would
+	 *         display first is returned
+	 */
+	public List<RestStop> bestPath(Hiker h, Comparator<Hiker> comparator) {
+		if (root == null) {
+			return null;
+		}
+		Hiker optimistic = new Hiker();
+		Hiker[] best = new Hiker[1];
+		List<List<RestStop>> found = new ArrayList<>(1);
+		search(h, new PathSearch() {
+			public boolean promising(int food, int raft, int axe) {
+				if (best[0] == null) {
+					return true;
+				}
+				optimistic.setFood(food);
+				optimistic.setRaft(raft);
+				optimistic.setAxe(axe);
+				return comparator.compare(optimistic, best[0]) > 0;
+			}
+
+			public void accept(List<RestStop> path, Hiker end) {
+				if (best[0] == null || comparator.compare(end, best[0]) > 0) {
+					best[0] = copyOf(end);
+					found.clear();
+					found.add(Collections.unmodifiableList(new ArrayList<>(path)));
+				}
+			}
+		});
+		return found.isEmpty() ? null : found.get(0);
+	}
+
+	/**
+	 * Finds the k paths to the bottom of the mountain after which the hiker has
+	 * the highest scores. The k best paths found so far are kept in a bounded
+	 * priority queue, and any subtree in which even the most supplies that could
+	 * be gained on the way to its bottom would not beat the k-th best score is
+	 * skipped. For this to be correct, the score must never be lower for a hiker
+	 * carrying more of any supply.
+	 *
+	 * @param h      Hiker object that traverses down the mountain; it is not
+	 *               modified
+	 * @param k      number of paths to find
+	 * @param scorer scores the hikers left at the bottom of the mountain; it should
+	 *               not keep the hikers it is given, since they are reused
+	 * @return at most k paths, from the highest score to the lowest; paths with
+	 *         equal scores are in the order in which traverse would display them
+	 * @throws IllegalArgumentException if k is negative
+	 */
+	public List<List<RestStop>> topKPaths(Hiker h, int k, ToDoubleFunction<Hiker> scorer) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Invalid k: number of paths cannot be negative");
+		}
+		if (root == null || k == 0) {
+			return new ArrayList<>();
+		}
+
+		// the worst of the kept paths is at the head: lowest score, then found last;
+		// the queue grows as paths are kept, since k may be far more than are found
+		PriorityQueue<ScoredPath> queue = new PriorityQueue<>(Math.min(k, 16), (a, b) -> a.score != b.score
+				? Double.compare(a.score, b.score) : Long.compare(b.order, a.order));
+		Hiker optimistic = new Hiker();
+		long[] order = new long[1];
+		search(h, new PathSearch() {
+			public boolean promising(int food, int raft, int axe) {
+				if (queue.size() < k) {
+					return true;
+				}
+				optimistic.setFood(food);
+				optimistic.setRaft(raft);
+				optimistic.setAxe(axe);
+				return scorer.applyAsDouble(optimistic) > queue.peek().score;
+			}
+
+			public void accept(List<RestStop> path, Hiker end) {
+				double score = scorer.applyAsDouble(end);
+				if (queue.size() == k) {
+					if (score <= queue.peek().score) {
+						return;
+					}
+					queue.poll();
+				}
+				queue.add(new ScoredPath(Collections.unmodifiableList(new ArrayList<>(path)), score, order[0]++));
+			}
+		});
+
+		ArrayList<List<RestStop>> best = new ArrayList<>(queue.size());
+		while (!queue.isEmpty()) {
+			best.add(queue.poll().path);
+		}
+		Collections.reverse(best);
+		return best;
+	}
+
+	/**
+	 * Explores the paths down the mountain for bestPath and topKPaths, skipping
+	 * the subtrees that the search does not find promising.
+	 *
+	 * @param h      Hiker object that traverses down the mountain; it is not
+	 *               modified
+	 * @param search decides which subtrees to explore and receives the paths
+	 */
+	private void search(Hiker h, PathSearch search) {
+		MountainMetrics.TraverseEvent event = new MountainMetrics.TraverseEvent();
+		event.begin();
+		MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+		searchRec(copyOf(h), root, new ArrayList<>(), search, counts);
+		metrics.record(counts, event);
+	}
+
+	/**
+	 * Recursive implementation of the search method. It follows the rules of
+	 * traverseRec, and also skips a subtree unless a hiker carrying the most
+	 * supplies that could be gained in it is promising.
+	 *
+	 * @param h      Hiker object that traverses down the mountain
+	 * @param node   node that the hiker is at
+	 * @param path   path that the hiker is currently on
+	 * @param search decides which subtrees to explore and receives the paths
+	 * @param counts counters of the search
+	 */
+	private void searchRec(Hiker h, BSTNode node, ArrayList<RestStop> path, PathSearch search,
+			MountainMetrics.Traversal counts) {
+		int food = node == root ? h.getFood() : h.getFood() - 1;
+		if (hopeless(node, path.size(), food, h.getRaft(), h.getAxe())
+				|| !search.promising(clamp(food + node.gainFood), clamp(h.getRaft() + node.gainRaft),
+						clamp(h.getAxe() + node.gainAxe))) {
+			counts.prunedByBounds++;
+			return;
+		}
+
+		if (!arrive(h, node, counts)) {
+			return;
+		}
+
+		path.add(node.data);
+		if (node.left == null && node.right == null) {
+			// hopeless ensures that this leaf is the bottom of the mountain
+			counts.bottoms++;
+			search.accept(path, h);
+		} else if (h.getFood() == 0) {
+			counts.prunedByFood++;
+		} else {
+			Hiker duplicate = copyOf(h);
+			if (node.left != null) {
+				searchRec(h, node.left, path, search, counts);
+			}
+			if (node.right != null) {
+				searchRec(duplicate, node.right, path, search, counts);
+			}
+		}
+		path.remove(path.size() - 1);
+	}
+
+	/**
+	 * Decides which subtrees bestPath and topKPaths explore, and receives the
+	 * paths that reach the bottom of the mountain.
+	 */
+	private interface PathSearch {
+
+		/**
+		 * Determines whether a hiker reaching the bottom with the specified supplies
+		 * would be worth keeping.
+		 *
+		 * @param food food left at the bottom
+		 * @param raft rafts left at the bottom
+		 * @param axe  axes left at the bottom
+		 * @return true if such a hiker would be kept
+		 */
+		boolean promising(int food, int raft, int axe);
+
+		/**
+		 * Receives a path that reaches the bottom of the mountain.
+		 *
+		 * @param path path to the bottom; it must be copied to be kept
+		 * @param end  hiker as it is at the bottom; it must be copied to be kept
+		 */
+		void accept(List<RestStop> path, Hiker end);
+
+	}
+
+	/**
+	 * Path kept by topKPaths, with its score and the order in which it was found.
+	 */
+	private static class ScoredPath {
+
+		final List<RestStop> path;
+		final double score;
+		final long order;
+
+		/**
+		 * Creates a new scored path.
+		 *
+		 * @param path  path to the bottom of the mountain
+		 * @param score score of the hiker at the bottom
+		 * @param order number of paths kept before this one
+		 */
+		ScoredPath(List<RestStop> path, double score, long order) {
+			this.path = path;
+			this.score = score;
+			this.order = order;
+		}
+
+	}
+
+	/**
+	 * Sets the height below which subtrees are traversed sequentially by
+	 * traverseParallel. Subtrees at least this tall are split so that their left
+	 * and right halves are explored by different worker threads.
+	 *
+	 * @param height minimum height of a subtree that is split into parallel tasks
+	 * @throws IllegalArgumentException if height is negative
+	 */
+	public void setParallelThreshold(int height) {
+		if (height < 0) {
+			throw new IllegalArgumentException("Invalid threshold: height cannot be negative");
+		}
+		this.parallelThreshold = height;
+	}
+
+	/**
+	 * Explores the same paths as the traverse method using the worker threads of
+	 * the specified pool. Since the hiker going right is given its own copy of the
+	 * supplies, the left and right subtrees of a node can be explored
+	 * independently. The paths that reach the bottom of the mountain are returned
+	 * in the order in which traverse would display them.
+	 *
+	 * @param h    Hiker object that traverses down the mountain
+	 * @param pool pool whose threads explore the subtrees
+	 * @return every path that reaches the bottom of the mountain
+	 */
+	public List<List<RestStop>> traverseParallel(Hiker h, ForkJoinPool pool) {
+		return traverseParallel(h, pool, null);
+	}
+
+	/**
+	 * Explores the same paths as the traverse method using the worker threads of
+	 * the specified pool, and stops early if the traversal is cancelled. The
+	 * cancellation hook is checked before each task starts, so a subtree shorter
+	 * than the parallel threshold is finished once it has been started.
+	 *
+	 * @param h         Hiker object that traverses down the mountain
+	 * @param pool      pool whose threads explore the subtrees
+	 * @param cancelled returns true once the traversal should stop, or null if
+	 *                  the traversal cannot be cancelled
+	 * @return the paths that reach the bottom of the mountain, in the order in
+	 *         which traverse would display them; if the traversal was cancelled,
+	 *         only the ones found before that
+	 */
+	public List<List<RestStop>> traverseParallel(Hiker h, ForkJoinPool pool, BooleanSupplier cancelled) {
+		if (root == null) {
+			return new ArrayList<>();
+		}
+		MountainMetrics.TraverseEvent event = new MountainMetrics.TraverseEvent();
+		event.begin();
+		MountainMetrics.Traversal total = new MountainMetrics.Traversal();
+		List<List<RestStop>> found = pool.invoke(new TraverseTask(h, root, new ArrayList<>(), total, cancelled));
+		metrics.record(total, event);
+		return found;
+	}
+
+	/**
+	 * Task that explores a subtree of the mountain for traverseParallel. Subtrees
+	 * shorter than the parallel threshold are explored by a single call to
+	 * traverseRec.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	@SuppressWarnings("serial") // tasks are never serialized
+	private class TraverseTask extends RecursiveTask<List<List<RestStop>>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Hiker h;
+		private final BSTNode node;
+		private final ArrayList<RestStop> path;
+		private final MountainMetrics.Traversal total;
+		private final BooleanSupplier cancelled;
+
+		/**
+		 * Creates a new task for the hiker arriving at the specified node.
+		 *
+		 * @param h         Hiker object that traverses down the mountain
+		 * @param node      node that the hiker is at
+		 * @param path      rest stops above this node
+		 * @param total     counters of the whole traversal
+		 * @param cancelled returns true once the traversal should stop, or null
+		 */
+		TraverseTask(Hiker h, BSTNode node, ArrayList<RestStop> path, MountainMetrics.Traversal total,
+				BooleanSupplier cancelled) {
+			this.h = h;
+			this.node = node;
+			this.path = path;
+			this.total = total;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		protected List<List<RestStop>> compute() {
+			List<List<RestStop>> found = new ArrayList<>();
+			if (cancelled != null && cancelled.getAsBoolean()) {
+				return found;
+			}
+			MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+			if (node.height < parallelThreshold) {
+				traverseRec(h, node, path, p -> found.add(new ArrayList<>(p)), counts);
+			} else {
+				split(found, counts);
+			}
+			synchronized (total) {
+				total.add(counts);
+			}
+			return found;
+		}
+
+		/**
+		 * Moves the hiker onto the node and explores its subtrees in separate tasks.
+		 *
+		 * @param found  list the paths found are added to
+		 * @param counts counters of this task
+		 */
+		private void split(List<List<RestStop>> found, MountainMetrics.Traversal counts) {
+			int food = node == root ? h.getFood() : h.getFood() - 1;
+			if (hopeless(node, path.size(), food, h.getRaft(), h.getAxe())) {
+				counts.prunedByBounds++;
+				return;
+			}
+			if (!arrive(h, node, counts)) {
+				return;
+			}
+			path.add(node.data);
+
+			// a subtree at least as tall as the threshold always has a child unless
+			// the threshold is zero
+			if (node.left == null && node.right == null) {
+				if (path.size() == root.height + 1) {
+					counts.bottoms++;
+					found.add(new ArrayList<>(path));
+				} else {
+					counts.cliffs++;
+				}
+				return;
+			}
+			if (h.getFood() == 0) {
+				counts.prunedByFood++;
+				return;
+			}
+
+			TraverseTask right = null;
+			if (node.right != null) {
+				right = new TraverseTask(copyOf(h), node.right, new ArrayList<>(path), total, cancelled);
+				right.fork();
+			}
+			if (node.left != null) {
+				found.addAll(new TraverseTask(h, node.left, path, total, cancelled).compute());
+			}
+			if (right != null) {
+				found.addAll(right.join());
+			}
+		}
+	}
+
+	/**
+	 * Iterator behind the paths method. It is a thin wrapper around a Descent,
+	 * which explores the mountain only as far as needed to find the next path.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	private class PathIterator implements Iterator<List<RestStop>> {
+
+		private final Descent descent;
+		private List<RestStop> next;
+
+		/**
+		 * Creates a new iterator for the hiker starting at the root.
+		 *
+		 * @param h Hiker object that traverses down the mountain
+		 */
+		PathIterator(Hiker h) {
+			this.descent = new Descent(h);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && descent.advance()) {
+				next = new ArrayList<>(descent.path());
+			}
+			return next != null;
+		}
+
+		@Override
+		public List<RestStop> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("no more paths down the mountain");
+			}
+			List<RestStop> found = next;
+			next = null;
+			return found;
+		}
+	}
+
+	/**
+	 * Explores the same paths as the traverse method without recursion. The
+	 * hiker's supplies at every depth of the current path are kept in arrays, so
+	 * the only objects created are the ones created by the sink, and very tall
+	 * mountains cannot overflow the call stack.
+	 *
+	 * @param h    Hiker object that traverses down the mountain
+	 * @param sink receives the paths that reach the bottom of the mountain
+	 */
+	public void traverseIterative(Hiker h, PathSink sink) {
+		traverseIterative(h, sink, null);
+	}
+
+	/**
+	 * Explores the same paths as the traverse method without recursion, and stops
+	 * early if the traversal is cancelled. The cancellation hook is checked
+	 * regularly while the mountain is explored, not only when a path is found.
+	 *
+	 * @param h         Hiker object that traverses down the mountain
+	 * @param sink      receives the paths that reach the bottom of the mountain
+	 * @param cancelled returns true once the traversal should stop, or null if
+	 *                  the traversal cannot be cancelled
+	 */
+	public void traverseIterative(Hiker h, PathSink sink, BooleanSupplier cancelled) {
+		Descent descent = new Descent(h);
+		descent.cancelled = cancelled;
+		List<RestStop> path = descent.path();
+		while (descent.advance()) {
+			sink.accept(path);
+		}
+	}
+
+	/**
+	 * Determines whether the hiker can reach the bottom of the mountain at all.
+	 * The mountain is explored in the same order as by the traverse method, and
+	 * the search stops at the first path that reaches the bottom.
+	 *
+	 * @param h Hiker object that traverses down the mountain; it is not modified
+	 * @return true if at least one path reaches the bottom of the mountain
+	 */
+	public boolean canDescend(Hiker h) {
+		Descent descent = new Descent(h);
+		boolean found = descent.advance();
+		descent.finish();
+		return found;
+	}
+
+	/**
+	 * Returns the first path that reaches the bottom of the mountain, the one that
+	 * traverse would display first. The search stops as soon as it is found.
+	 *
+	 * @param h Hiker object that traverses down the mountain; it is not modified
+	 * @return the first path to the bottom of the mountain, or null if there is
+	 *         none
+	 */
+	public List<RestStop> firstPath(Hiker h) {
+		Descent descent = new Descent(h);
+		List<RestStop> found = null;
+		if (descent.advance()) {
+			found = Collections.unmodifiableList(new ArrayList<>(descent.path()));
+		}
+		descent.finish();
+		return found;
+	}
+
+	/**
+	 * Counts the paths that reach the bottom of the mountain, following the same
+	 * rules as the traverse method, without building or displaying the paths.
+	 *
+	 * @param h Hiker object that traverses down the mountain
+	 * @return number of paths that reach the bottom of the mountain
+	 */
+	public long countPaths(Hiker h) {
+		Descent descent = new Descent(h);
+		long count = 0;
+		while (descent.advance()) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the leaves at the bottom of the mountain that the hiker is able to
+	 * reach, following the same rules as the traverse method. Since there is only
+	 * one path from the top to any leaf, each of these leaves is the end of exactly
+	 * one of the paths traverse would display.
+	 *
+	 * @param h Hiker object that traverses down the mountain
+	 * @return reachable leaves at the bottom of the mountain, from left to right
+	 */
+	public List<RestStop> reachableLeaves(Hiker h) {
+		Descent descent = new Descent(h);
+		List<RestStop> leaves = new ArrayList<>();
+		while (descent.advance()) {
+			leaves.add(descent.current());
+		}
+		return leaves;
+	}
+
+	/**
+	 * Walks down the mountain one path at a time using an explicit stack. Entry d
+	 * of each array describes the node at depth d of the current path: the node
+	 * itself, the supplies the hiker has after passing it, and which of its
+	 * children have been explored.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	private class Descent {
+
+		// stages of a node on the current path
+		private static final byte ARRIVED = 0;
+		private static final byte LEFT = 1;
+		private static final byte DONE = 2;
+
+		private static final int CANCEL_CHECK_STEPS = 256;
+
+		private final BSTNode[] nodes;
+		private final int[] food;
+		private final int[] raft;
+		private final int[] axe;
+		private final byte[] stage;
+		private final int bottom;
+		private int depth;
+
+		// checked every CANCEL_CHECK_STEPS steps; null if the descent cannot be cancelled
+		private BooleanSupplier cancelled;
+		private int steps;
+
+		// counters of this descent, recorded in the metrics of the tree by finish
+		private final MountainMetrics.TraverseEvent event = new MountainMetrics.TraverseEvent();
+		private final MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+		private boolean finished;
+
+		/**
+		 * Creates a new descent for the hiker starting at the root.
+		 *
+		 * @param h Hiker object that traverses down the mountain
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Descent(Hiker h) {
+			event.begin();
+			int levels = root == null ? 0 : root.height + 1;
+			nodes = (BSTNode[]) new BSTMountain.BSTNode[levels];
+			food = new int[levels];
+			raft = new int[levels];
+			axe = new int[levels];
+			stage = new byte[levels];
+			bottom = levels - 1;
+			depth = -1;
+			if (root != null && enter(root, 0, h.getFood(), h.getRaft(), h.getAxe())) {
+				depth = 0;
+			}
+		}
+
+		/**
+		 * Explores the mountain until the next path that reaches the bottom is found.
+		 *
+		 * @return true if a path was found, false if there are no more paths or the
+		 *         descent was cancelled
+		 */
+		boolean advance() {
+			while (depth >= 0) {
+				if (cancelled != null && steps++ % CANCEL_CHECK_STEPS == 0 && cancelled.getAsBoolean()) {
+					depth = -1;
+					finish();
+					return false;
+				}
+				BSTNode node = nodes[depth];
+				byte s = stage[depth];
+
+				if (s == ARRIVED) {
+					// checks if end of path has been reached
+					if (node.left == null && node.right == null) {
+						stage[depth] = DONE;
+						if (depth == bottom) {
+							counts.bottoms++;
+							return true;
+						}
+						counts.cliffs++;
+						continue;
+					}
+					// hiker cannot progress if he has no food
+					if (food[depth] == 0) {
+						counts.prunedByFood++;
+						stage[depth] = DONE;
+						continue;
+					}
+					stage[depth] = LEFT;
+					if (node.left != null && enterChild(node.left)) {
+						depth++;
+					}
+				} else if (s == LEFT) {
+					stage[depth] = DONE;
+					if (node.right != null && enterChild(node.right)) {
+						depth++;
+					}
+				} else {
+					depth--;
+				}
+			}
+			finish();
+			return false;
+		}
+
+		/**
+		 * Records the counters of this descent in the metrics of the tree, as one
+		 * traversal. This is done when advance runs out of paths or is cancelled,
+		 * and must be called by anyone who stops calling advance before that. Only
+		 * the first call has any effect.
+		 */
+		void finish() {
+			if (!finished) {
+				finished = true;
+				metrics.record(counts, event);
+			}
+		}
+
+		/**
+		 * Returns a view of the current path. The view is updated in place by every
+		 * call to advance.
+		 *
+		 * @return rest stops on the current path, starting at the top of the mountain
+		 */
+		List<RestStop> path() {
+			return new AbstractList<RestStop>() {
+				@Override
+				public RestStop get(int index) {
+					Objects.checkIndex(index, size());
+					return nodes[index].data;
+				}
+
+				@Override
+				public int size() {
+					return depth + 1;
+				}
+			};
+		}
+
+		/**
+		 * Returns the rest stop at the end of the current path.
+		 *
+		 * @return rest stop the hiker is currently at
+		 */
+		RestStop current() {
+			return nodes[depth].data;
+		}
+
+		/**
+		 * Moves the hiker from the node at the current depth onto one of its
+		 * children, using one food to do so.
+		 *
+		 * @param child child of the node at the current depth
+		 * @return true if the hiker was able to pass the obstacles at the child
+		 */
+		private boolean enterChild(BSTNode child) {
+			return enter(child, depth + 1, food[depth] - 1, raft[depth], axe[depth]);
+		}
+
+		/**
+		 * Applies the same rules as the arrive method to the supplies stored at the
+		 * specified depth.
+		 *
+		 * @param node node that the hiker is moving onto
+		 * @param d    depth of the node
+		 * @param f    food the hiker has when it gets to the node
+		 * @param r    rafts the hiker has when it gets to the node
+		 * @param a    axes the hiker has when it gets to the node
+		 * @return true if the hiker was able to pass the obstacles at the node
+		 */
+		private boolean enter(BSTNode node, int d, int f, int r, int a) {
+			if (hopeless(node, d, f, r, a)) {
+				counts.prunedByBounds++;
+				return false;
+			}
+			counts.nodesVisited++;
+			int passed = pass(node.data, f, r, a, food, raft, axe, d);
+			if (passed == BLOCKED_BY_TREE) {
+				counts.prunedByAxe++;
+				return false;
+			}
+			if (passed == BLOCKED_BY_RIVER) {
+				counts.prunedByRaft++;
+				return false;
+			}
+			nodes[d] = node;
+			stage[d] = ARRIVED;
+			return true;
+		}
+	}
+
+	/**
+	 * Changes the supplies and obstacles of the rest stop with the specified
+	 * label. Like a change made through the setters of the rest stop, this only
+	 * updates the pruning bounds of its ancestors, and it is remembered so that
+	 * cachedPaths only needs to explore the part of the mountain below the
+	 * changed rest stop again. Unlike the setters, all five counts are changed
+	 * as a single modification.
+	 *
+	 * @param label      label of the rest stop to change
+	 * @param food       new amount of food at the rest stop
+	 * @param raft       new amount of rafts at the rest stop
+	 * @param axe        new amount of axes at the rest stop
+	 * @param fallenTree new amount of fallen trees at the rest stop
+	 * @param river      new amount of rivers at the rest stop
+	 * @return true if this tree contains a rest stop with the label
+	 */
+	public boolean updateStop(String label, int food, int raft, int axe, int fallenTree, int river) {
+		List<BSTNode> ancestors = pathTo(new RestStop(label));
+		if (ancestors == null) {
+			return false;
+		}
+		// the rest stop tells this tree, and any other tree holding it, about the change
+		ancestors.get(ancestors.size() - 1).data.set(food, raft, axe, fallenTree, river);
+		return true;
+	}
+
+	/**
+	 * Returns the number of changes made to this tree so far. The count goes up
+	 * every time add or addAll adds rest stops and every time a rest stop in this
+	 * tree is changed by updateStop or by its setters, so a traversal result
+	 * found when the count had some value is still correct as long as the count
+	 * has that value. Changes to rest stops that are not in this tree leave the
+	 * count alone.
+	 *
+	 * @return the number of changes made to this tree
+	 */
+	public long getModificationCount() {
+		return modifications;
+	}
+
+	/**
+	 * Returns the paths that reach the bottom of the mountain, as the paths method
+	 * would. The paths found for the most recent hiker are kept, and if the next
+	 * call is made for a hiker with the same supplies, only the subtrees below the
+	 * rest stops changed by updateStop or by their setters since then are
+	 * explored again. Adding a rest stop changes the shape of the tree, so the
+	 * next call after an add explores the whole mountain.
+	 *
+	 * @param h Hiker object that traverses down the mountain; it is not modified
+	 * @return the paths that reach the bottom of the mountain, in the order in
+	 *         which traverse would display them
+	 */
+	public List<List<RestStop>> cachedPaths(Hiker h) {
+		if (!cacheValid || cachedFood != h.getFood() || cachedRaft != h.getRaft() || cachedAxe != h.getAxe()) {
+			cached = new ArrayList<>();
+			if (root != null) {
+				collect(copyOf(h), root, new ArrayList<>(), cached);
+			}
+			cachedFood = h.getFood();
+			cachedRaft = h.getRaft();
+			cachedAxe = h.getAxe();
+			cacheValid = true;
+			changed.clear();
+		}
+
+		for (BSTNode node : changed) {
+			List<BSTNode> ancestors = pathTo(node.data);
+			// a change above this node already caused its subtree to be explored again
+			boolean covered = false;
+			for (int i = 0; i < ancestors.size() - 1 && !covered; i++) {
+				covered = changed.contains(ancestors.get(i));
+			}
+			if (!covered) {
+				refresh(h, ancestors);
+			}
+		}
+		changed.clear();
+
+		return Collections.unmodifiableList(new ArrayList<>(cached));
+	}
+
+	/**
+	 * Replaces the cached paths that go through a changed node. Since the leaves
+	 * of a subtree are next to each other in the order of the paths, these paths
+	 * are a single range of the cached list, found by searching for the smallest
+	 * and largest labels of the subtree.
+	 *
+	 * @param h         Hiker object that traverses down the mountain
+	 * @param ancestors nodes from the root down to the changed node
+	 */
+	private void refresh(Hiker h, List<BSTNode> ancestors) {
+		BSTNode node = ancestors.get(ancestors.size() - 1);
+		BSTNode lowest = node;
+		while (lowest.left != null) {
+			lowest = lowest.left;
+		}
+		BSTNode highest = node;
+		while (highest.right != null) {
+			highest = highest.right;
+		}
+		int from = firstPathEndingAtOrAfter(lowest.data, false);
+		int to = firstPathEndingAtOrAfter(highest.data, true);
+
+		// walk the hiker down to the changed node
+		List<List<RestStop>> found = new ArrayList<>();
+		MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+		Hiker hiker = copyOf(h);
+		ArrayList<RestStop> path = new ArrayList<>();
+		boolean reached = true;
+		for (int i = 0; i < ancestors.size() - 1 && reached; i++) {
+			reached = arrive(hiker, ancestors.get(i), counts) && hiker.getFood() != 0;
+			path.add(ancestors.get(i).data);
+		}
+		if (reached) {
+			collect(hiker, node, path, found);
+		}
+
+		cached.subList(from, to).clear();
+		cached.addAll(from, found);
+	}
+
+	/**
+	 * Finds the first cached path that ends at or after (or strictly after) the
+	 * specified rest stop.
+	 *
+	 * @param stop   rest stop to search for
+	 * @param strict true to skip a path that ends at the rest stop itself
+	 * @return index of the path, or the number of cached paths if there is none
+	 */
+	private int firstPathEndingAtOrAfter(RestStop stop, boolean strict) {
+		int lo = 0;
+		int hi = cached.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			List<RestStop> p = cached.get(mid);
+			int comp = p.get(p.size() - 1).compareTo(stop);
+			if (comp < 0 || (strict && comp == 0)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Explores the subtree rooted at the node and adds unmodifiable copies of the
+	 * paths that reach the bottom of the mountain to the list.
+	 *
+	 * @param h     Hiker object that traverses down the mountain
+	 * @param node  node that the hiker is at
+	 * @param path  rest stops above the node
+	 * @param found list the paths are added to
+	 */
+	private void collect(Hiker h, BSTNode node, ArrayList<RestStop> path, List<List<RestStop>> found) {
+		MountainMetrics.TraverseEvent event = new MountainMetrics.TraverseEvent();
+		event.begin();
+		MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+		traverseRec(h, node, path, p -> found.add(Collections.unmodifiableList(new ArrayList<>(p))), counts);
+		metrics.record(counts, event);
+	}
+
+	/**
+	 * Returns the nodes on the way from the root to the node holding an element
+	 * equal to the specified one.
+	 *
+	 * @param data element to search for
+	 * @return nodes from the root down to the node, or null if there is none
+	 */
+	private List<BSTNode> pathTo(RestStop data) {
+		List<BSTNode> nodes = new ArrayList<>();
+		BSTNode node = root;
+		while (node != null) {
+			nodes.add(node);
+			int comp = node.data.compareTo(data);
+			if (comp == 0) {
+				return nodes;
+			}
+			node = comp > 0 ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * Creates an immutable, compact copy of this tree. The copy stores the rest
+	 * stops in parallel arrays of primitives instead of objects and can be
+	 * traversed in the same way as this tree. Later changes to this tree or to its
+	 * rest stops are not reflected in the copy.
+	 *
+	 * @return compact copy of this tree
+	 */
+	public CompactMountain freeze() {
+		Freezer f = new Freezer();
+		if (root != null) {
+			f.copy(root);
+		}
+		return new CompactMountain(size, f.children, f.right, f.height, f.food, f.raft, f.axe, f.fallenTree,
+				f.river, Arrays.copyOf(f.labels, f.labelStart[size]), f.labelStart);
+	}
+
+	/**
+	 * Fills in the arrays of a CompactMountain by visiting the tree in preorder.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	private class Freezer {
+
+		byte[] children = new byte[size];
+		int[] right = new int[size];
+		byte[] height = new byte[size];
+		int[] food = new int[size];
+		int[] raft = new int[size];
+		int[] axe = new int[size];
+		int[] fallenTree = new int[size];
+		int[] river = new int[size];
+		byte[] labels = new byte[size * 8];
+		int[] labelStart = new int[size + 1];
+		int next = 0;
+
+		/**
+		 * Copies the subtree rooted at the specified node into the arrays.
+		 *
+		 * @param node node to copy
+		 */
+		void copy(BSTNode node) {
+			int i = next++;
+			RestStop r = node.data;
+			height[i] = (byte) node.height;
+			food[i] = r.getFood();
+			raft[i] = r.getRaft();
+			axe[i] = r.getAxe();
+			fallenTree[i] = r.getFallenTree();
+			river[i] = r.getRiver();
+
+			byte[] label = r.getLabel().getBytes(StandardCharsets.UTF_8);
+			int start = labelStart[i];
+			if (start + label.length > labels.length) {
+				labels = Arrays.copyOf(labels, Math.max(labels.length * 2, start + label.length));
+			}
+			System.arraycopy(label, 0, labels, start, label.length);
+			labelStart[i + 1] = start + label.length;
+
+			if (node.left != null) {
+				children[i] |= CompactMountain.HAS_LEFT;
+				copy(node.left);
+			}
+			if (node.right != null) {
+				children[i] |= CompactMountain.HAS_RIGHT;
+				right[i] = next;
+				copy(node.right);
+			}
+		}
+	}
+
+	/**
+	 * Writes this tree to the specified file in a binary format that can be read
+	 * back by loadSnapshot. The file holds a header, the labels of all nodes in
+	 * preorder as a string table, and then one fixed size record per node in
+	 * preorder with its children, height, supplies, and obstacles.
+	 *
+	 * @param file file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeSnapshot(Path file) throws IOException {
+		List<BSTNode> preorder = new ArrayList<>(size);
+		Deque<BSTNode> stack = new ArrayDeque<>();
+		if (root != null) {
+			stack.push(root);
+		}
+		while (!stack.isEmpty()) {
+			BSTNode node = stack.pop();
+			preorder.add(node);
+			if (node.right != null) {
+				stack.push(node.right);
+			}
+			if (node.left != null) {
+				stack.push(node.left);
+			}
+		}
+
+		byte[][] labels = new byte[preorder.size()][];
+		int labelBytes = 0;
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = preorder.get(i).data.getLabel().getBytes(StandardCharsets.UTF_8);
+			labelBytes += labels[i].length;
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			out.writeInt(preorder.size());
+			out.writeInt(labelBytes);
+
+			// string table
+			int offset = 0;
+			for (byte[] label : labels) {
+				out.writeInt(offset);
+				offset += label.length;
+			}
+			out.writeInt(offset);
+			for (byte[] label : labels) {
+				out.write(label);
+			}
+
+			// nodes
+			for (BSTNode node : preorder) {
+				RestStop r = node.data;
+				out.writeByte((node.left != null ? CompactMountain.HAS_LEFT : 0)
+						| (node.right != null ? CompactMountain.HAS_RIGHT : 0));
+				out.writeByte(node.height);
+				out.writeInt(r.getFood());
+				out.writeInt(r.getRaft());
+				out.writeInt(r.getAxe());
+				out.writeInt(r.getFallenTree());
+				out.writeInt(r.getRiver());
+			}
+		}
+	}
+
+	/**
+	 * Reads a tree written by writeSnapshot. The file is memory-mapped and the
+	 * tree is rebuilt in the same shape it had when it was written, without
+	 * comparing any labels or performing any rotations. The sizes, offsets, and
+	 * heights in the file are checked, so a truncated or damaged file is reported
+	 * rather than loaded as a broken tree, but the order of the labels is taken
+	 * on trust.
+	 *
+	 * @param file file to read
+	 * @return the tree stored in the file
+	 * @throws IOException if the file cannot be read, is not a snapshot, or is
+	 *                     truncated or corrupt
+	 */
+	public static BSTMountain<RestStop> loadSnapshot(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("snapshot is too large to be mapped: " + file);
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			try {
+				if (buffer.getInt() != SNAPSHOT_MAGIC) {
+					throw new IOException("not a mountain snapshot: " + file);
+				}
+				int version = buffer.getInt();
+				if (version != SNAPSHOT_VERSION) {
+					throw new IOException("unsupported snapshot version " + version + ": " + file);
+				}
+				int count = buffer.getInt();
+				int labelBytes = buffer.getInt();
+
+				// the offsets, the labels, and one record of SNAPSHOT_RECORD_BYTES per node
+				// must all fit in the file
+				int offsets = buffer.position();
+				long labels = offsets + (count + 1L) * 4;
+				if (count < 0 || labelBytes < 0
+						|| labels + labelBytes + (long) count * SNAPSHOT_RECORD_BYTES > buffer.limit()) {
+					throw new IOException("snapshot is truncated or corrupt: " + file);
+				}
+				buffer.position((int) (labels + labelBytes));
+
+				BSTMountain<RestStop> mountain = new BSTMountain<>();
+				if (count > 0) {
+					BSTMountain<RestStop>.SnapshotReader reader = mountain.new SnapshotReader(buffer, offsets,
+							(int) labels, labelBytes, count);
+					mountain.root = reader.read();
+					if (reader.next != count) {
+						throw new IOException("snapshot is truncated or corrupt: " + file);
+					}
+				}
+				mountain.size = count;
+				mountain.metrics.recordInserts(count);
+				mountain.metrics.recordHeight(count == 0 ? -1 : mountain.root.height);
+				return mountain;
+			} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+				throw new IOException("snapshot is truncated or corrupt: " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the nodes of a snapshot from its node records, which are read one
+	 * after the other in preorder.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	private class SnapshotReader {
+
+		private final ByteBuffer buffer;
+		private final int offsets;
+		private final int labels;
+		private final int labelBytes;
+		private final int count;
+		private int next; // number of node records read so far
+
+		/**
+		 * Creates a new reader for the mapped snapshot.
+		 *
+		 * @param buffer     mapped snapshot, positioned at the first node record
+		 * @param offsets    index of the label offsets in the buffer
+		 * @param labels     index of the label bytes in the buffer
+		 * @param labelBytes number of label bytes
+		 * @param count      number of node records
+		 */
+		SnapshotReader(ByteBuffer buffer, int offsets, int labels, int labelBytes, int count) {
+			this.buffer = buffer;
+			this.offsets = offsets;
+			this.labels = labels;
+			this.labelBytes = labelBytes;
+			this.count = count;
+		}
+
+		/**
+		 * Rebuilds the subtree whose root is the next node record.
+		 *
+		 * @return root of the subtree
+		 * @throws IOException if the records do not describe a valid tree
+		 */
+		BSTNode read() throws IOException {
+			if (next == count) {
+				throw new IOException("snapshot has more nodes than it declares");
+			}
+			int i = next++;
+			byte children = buffer.get();
+			int height = buffer.get();
+			int food = buffer.getInt();
+			int raft = buffer.getInt();
+			int axe = buffer.getInt();
+			int fallenTree = buffer.getInt();
+			int river = buffer.getInt();
+
+			int start = buffer.getInt(offsets + i * 4);
+			int end = buffer.getInt(offsets + (i + 1) * 4);
+			if (start < 0 || end <= start || end > labelBytes) {
+				throw new IOException("snapshot has an invalid label offset");
+			}
+			byte[] label = new byte[end - start];
+			buffer.get(labels + start, label);
+
+			BSTNode node = new BSTNode(
+					new RestStop(new String(label, StandardCharsets.UTF_8), food, raft, axe, fallenTree, river));
+			if ((children & CompactMountain.HAS_LEFT) != 0) {
+				node.left = read();
+			}
+			if ((children & CompactMountain.HAS_RIGHT) != 0) {
+				node.right = read();
+			}
+			node.height = height;
+			if (height != 1 + Math.max(height(node.left), height(node.right))
+					|| Math.abs(height(node.left) - height(node.right)) > 1) {
+				throw new IOException("snapshot has an invalid node height");
+			}
+			node.count = 1 + count(node.left) + count(node.right);
+			updateBounds(node);
+			return node;
+		}
+	}
+
+	/**
+	 * Returns the metrics that this tree records its inserts, rotations, and
+	 * traversals in.
+	 *
+	 * @return the metrics of this tree
+	 */
+	public MountainMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics that this tree records its inserts, rotations, and
+	 * traversals in, so that several trees or a tree and a RestStopParser can
+	 * share one set of counters.
+	 *
+	 * @param metrics the metrics to set
+	 */
+	public void setMetrics(MountainMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the number of elements in this tree.
+	 * 
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+
+		return this.size;
+	}
+
+	/**
+	 * Creates a rest stop with the specified label, so that the label can be
+	 * compared with the rest stops of this tree by compareTo, as pathTo does.
+	 * Rest stops cannot have empty labels, so there is none for an empty label.
+	 *
+	 * @param label label to compare to
+	 * @return a rest stop with the label, or null if the label is empty
+	 * @throws NullPointerException if label is null
+	 */
+	private static RestStop probe(String label) {
+		return label.isEmpty() ? null : new RestStop(label);
+	}
+
+	/**
+	 * Compares the rest stop of a node with a rest stop made by probe. An empty
+	 * label, for which probe makes no rest stop, comes before every other label.
+	 *
+	 * @param node  node whose rest stop is compared
+	 * @param probe rest stop to compare to, or null for an empty label
+	 * @return a negative integer, zero, or a positive integer as the rest stop of
+	 *         the node is less than, equal to, or greater than the probe
+	 */
+	private int compare(BSTNode node, RestStop probe) {
+		return probe == null ? 1 : node.data.compareTo(probe);
+	}
+
+	/**
+	 * Returns the rest stop with the specified label.
+	 *
+	 * @param label label to look for
+	 * @return the rest stop with the label, or null if this tree has none
+	 * @throws NullPointerException if label is null
+	 */
+	public RestStop get(String label) {
+		RestStop probe = probe(label);
+		BSTNode node = root;
+		while (node != null) {
+			int comp = compare(node, probe);
+			if (comp == 0) {
+				return node.data;
+			}
+			node = comp > 0 ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the rest stop with the greatest label that is less than or equal to
+	 * the specified label.
+	 *
+	 * @param label label to compare to
+	 * @return the rest stop, or null if every label in this tree is greater
+	 * @throws NullPointerException if label is null
+	 */
+	public RestStop floor(String label) {
+		RestStop probe = probe(label);
+		RestStop found = null;
+		BSTNode node = root;
+		while (node != null) {
+			int comp = compare(node, probe);
+			if (comp == 0) {
+				return node.data;
+			}
+			if (comp < 0) {
+				// this one fits, but there may be a closer one to the right
+				found = node.data;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the rest stop with the least label that is greater than or equal to
+	 * the specified label.
+	 *
+	 * @param label label to compare to
+	 * @return the rest stop, or null if every label in this tree is less
+	 * @throws NullPointerException if label is null
+	 */
+	public RestStop ceiling(String label) {
+		RestStop probe = probe(label);
+		RestStop found = null;
+		BSTNode node = root;
+		while (node != null) {
+			int comp = compare(node, probe);
+			if (comp == 0) {
+				return node.data;
+			}
+			if (comp > 0) {
+				// this one fits, but there may be a closer one to the left
+				found = node.data;
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the number of rest stops whose labels are less than the specified
+	 * label. If this tree contains the label, this is the index of its rest stop
+	 * in sorted order. The subtree sizes kept in the nodes make this take time
+	 * proportional to the height of the tree.
+	 *
+	 * @param label label to compare to
+	 * @return the number of rest stops with smaller labels
+	 * @throws NullPointerException if label is null
+	 */
+	public int rank(String label) {
+		RestStop probe = probe(label);
+		int rank = 0;
+		BSTNode node = root;
+		while (node != null) {
+			int comp = compare(node, probe);
+			if (comp < 0) {
+				// the node and its whole left subtree come before the label
+				rank += count(node.left) + 1;
+				node = node.right;
+			} else if (comp > 0) {
+				node = node.left;
+			} else {
+				return rank + count(node.left);
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * Returns the rest stop at the specified index in sorted order. The subtree
+	 * sizes kept in the nodes make this take time proportional to the height of
+	 * the tree.
+	 *
+	 * @param index index of the rest stop, starting at 0 for the smallest label
+	 * @return the rest stop at that index
+	 * @throws IndexOutOfBoundsException if index is negative or not less than the
+	 *                                   size of this tree
+	 */
+	public RestStop select(int index) {
+		Objects.checkIndex(index, size);
+		BSTNode node = root;
+		while (true) {
+			int left = count(node.left);
+			if (index < left) {
+				node = node.left;
+			} else if (index > left) {
+				index -= left + 1;
+				node = node.right;
+			} else {
+				return node.data;
+			}
+		}
+	}
+
+	/**
+	 * Returns an iterator over the rest stops whose labels are in the specified
+	 * range, in sorted order. The iterator keeps its own stack of the nodes still
+	 * to be visited instead of recursing, and only descends into the parts of the
+	 * tree that overlap the range. The tree must not be added to while the
+	 * iterator is in use.
+	 *
+	 * @param from least label of the range, or null to start at the smallest
+	 *             label
+	 * @param to   label right after the range, or null to go on to the greatest
+	 *             label
+	 * @return iterator over the rest stops with labels from from, inclusive, to
+	 *         to, exclusive
+	 */
+	public Iterator<RestStop> range(String from, String to) {
+		return new RangeIterator(from, to);
+	}
+
+	/**
+	 * Iterator behind the range method. The stack holds the nodes whose rest stops
+	 * have not been returned yet but whose left subtrees have been dealt with, the
+	 * next one on top.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	private class RangeIterator implements Iterator<RestStop> {
+
+		private final ArrayDeque<BSTNode> stack = new ArrayDeque<>();
+		private final boolean bounded; // whether the range has an upper bound
+		private final RestStop to;
+		private final int expectedSize;
+
+		/**
+		 * Creates a new iterator over the specified range.
+		 *
+		 * @param from least label of the range, or null for no lower bound
+		 * @param to   label right after the range, or null for no upper bound
+		 */
+		RangeIterator(String from, String to) {
+			this.bounded = to != null;
+			this.to = to == null ? null : probe(to);
+			this.expectedSize = size;
+			// push the path to the first label in the range, skipping smaller nodes
+			RestStop start = from == null ? null : probe(from);
+			BSTNode node = root;
+			while (node != null) {
+				if (from == null || compare(node, start) >= 0) {
+					stack.push(node);
+					node = node.left;
+				} else {
+					node = node.right;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (size != expectedSize) {
+				throw new ConcurrentModificationException("the tree was added to during the iteration");
+			}
+			return !stack.isEmpty() && (!bounded || compare(stack.peek(), to) < 0);
+		}
+
+		@Override
+		public RestStop next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("no more rest stops in the range");
+			}
+			BSTNode node = stack.pop();
+			// the next nodes are the leftmost path of the right subtree
+			for (BSTNode n = node.right; n != null; n = n.left) {
+				stack.push(n);
+			}
+			return node.data;
+		}
+	}
+
+	/**
+	 * Returns the string representation of this BSTMountain.
+	 * 
+	 * @returns the string representation of this BSTMountain object
+	 */
+	public String toStringTree() {
+		StringBuffer sb = new StringBuffer();
+		toStringTree(sb, root, 0);
+		return sb.toString();
+	}
 
 	/**
 	 * Recursive implementation of toStringTree
@@ -405,9 +2594,21 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 
 		RestStop data;
 		int height;
+		int count = 1; // number of nodes in the subtree rooted at this node
 		BSTNode left;
 		BSTNode right;
 
+		// least supplies needed on arrival to reach a deepest leaf of this subtree
+		int minFood;
+		int minRaft;
+		int minAxe;
+		boolean negative; // true if the subtree contains a negative count
+
+		// most supplies gained from arrival at this node to a deepest leaf of this subtree
+		long gainFood;
+		long gainRaft;
+		long gainAxe;
+
 		/**
 		 * Creates new BSTNode with specified RestStop data
 		 * 
@@ -416,6 +2617,8 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 		 */
 		public BSTNode(RestStop data) {
 			this.data = data;
+			data.addOwner(BSTMountain.this);
+			updateBounds(this);
 		}
 
 		/**
@@ -430,9 +2633,12 @@ public class BSTMountain<T extends Comparable<RestStop>> {
 		 */
 		public BSTNode(RestStop data, int height, BSTNode left, BSTNode right) {
 			this.data = data;
+			data.addOwner(BSTMountain.this);
 			this.height = height;
 			this.left = left;
 			this.right = right;
+			this.count = 1 + count(left) + count(right);
+			updateBounds(this);
 		}
 
 		/**
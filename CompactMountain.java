@@ -0,0 +1,237 @@
+package project5;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is an immutable copy of a BSTMountain that is laid out for fast
+ * traversal. Instead of node and RestStop objects, it stores one entry per rest
+ * stop in a set of parallel arrays, in preorder, so the left child of a node is
+ * always the entry right after it. The labels of all the rest stops are stored
+ * back to back in a single array of UTF-8 bytes.
+ *
+ * A CompactMountain is created by BSTMountain.freeze and is traversed following
+ * the same rules as BSTMountain.traverse.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class CompactMountain {
+
+	// bits of the children array
+	static final byte HAS_LEFT = 1;
+	static final byte HAS_RIGHT = 2;
+
+	private final int size;
+	private final byte[] children; // which children each node has
+	private final int[] right; // index of the right child of each node
+	private final byte[] height;
+	private final int[] food;
+	private final int[] raft;
+	private final int[] axe;
+	private final int[] fallenTree;
+	private final int[] river;
+	private final byte[] labels; // UTF-8 bytes of all labels
+	private final int[] labelStart; // index of each label in labels, plus the end
+
+	/**
+	 * Creates a new CompactMountain from arrays filled in by BSTMountain.freeze.
+	 * Entry i of every array describes node i, and the nodes are in preorder.
+	 *
+	 * @param size       number of nodes
+	 * @param children   HAS_LEFT and HAS_RIGHT bits of each node
+	 * @param right      index of the right child of each node
+	 * @param height     height of each node
+	 * @param food       amount of food at each node
+	 * @param raft       amount of rafts at each node
+	 * @param axe        amount of axes at each node
+	 * @param fallenTree amount of fallen trees at each node
+	 * @param river      amount of rivers at each node
+	 * @param labels     UTF-8 bytes of all labels
+	 * @param labelStart index of each label in labels, followed by the length of
+	 *                   labels
+	 */
+	CompactMountain(int size, byte[] children, int[] right, byte[] height, int[] food, int[] raft, int[] axe,
+			int[] fallenTree, int[] river, byte[] labels, int[] labelStart) {
+		this.size = size;
+		this.children = children;
+		this.right = right;
+		this.height = height;
+		this.food = food;
+		this.raft = raft;
+		this.axe = axe;
+		this.fallenTree = fallenTree;
+		this.river = river;
+		this.labels = labels;
+		this.labelStart = labelStart;
+	}
+
+	/**
+	 * Returns the number of rest stops in this mountain.
+	 *
+	 * @return the number of rest stops in this mountain
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the label of the rest stop stored at the specified node.
+	 *
+	 * @param node index of the node
+	 * @return the label
+	 */
+	public String getLabel(int node) {
+		return new String(labels, labelStart[node], labelStart[node + 1] - labelStart[node],
+				StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Simulates a hiker traversing down the mountain, following the same rules as
+	 * BSTMountain.traverse, and displays every path that reaches the bottom of
+	 * the mountain.
+	 *
+	 * @param h Hiker object that traverses down the mountain
+	 */
+	public void traverse(Hiker h) {
+		StringBuilder sb = new StringBuilder();
+		walk(h, (path, length) -> {
+			sb.setLength(0);
+			for (int i = 0; i < length; i++) {
+				sb.append(getLabel(path[i])).append(' ');
+			}
+			System.out.println(sb);
+		});
+	}
+
+	/**
+	 * Counts the paths that reach the bottom of the mountain, following the same
+	 * rules as BSTMountain.traverse.
+	 *
+	 * @param h Hiker object that traverses down the mountain
+	 * @return number of paths that reach the bottom of the mountain
+	 */
+	public long countPaths(Hiker h) {
+		long[] count = new long[1];
+		walk(h, (path, length) -> count[0]++);
+		return count[0];
+	}
+
+	/**
+	 * Receives the paths found by walk.
+	 */
+	private interface Visitor {
+
+		/**
+		 * Receives a path that reaches the bottom of the mountain.
+		 *
+		 * @param path   indices of the nodes on the path; reused by walk
+		 * @param length number of nodes on the path
+		 */
+		void visit(int[] path, int length);
+	}
+
+	/**
+	 * Walks down the mountain with an explicit stack. Entry d of each array
+	 * describes the node at depth d of the current path: its index, the supplies
+	 * the hiker has after passing it, and which of its children have been
+	 * explored.
+	 *
+	 * @param h       Hiker object that traverses down the mountain
+	 * @param visitor receives the paths that reach the bottom of the mountain
+	 */
+	private void walk(Hiker h, Visitor visitor) {
+		if (size == 0) {
+			return;
+		}
+		int levels = height[0] + 1;
+		int[] path = new int[levels];
+		int[] f = new int[levels];
+		int[] r = new int[levels];
+		int[] a = new int[levels];
+		byte[] stage = new byte[levels]; // 0 arrived, 1 left explored, 2 done
+
+		int depth = enter(0, 0, h.getFood(), h.getRaft(), h.getAxe(), path, f, r, a, stage) ? 0 : -1;
+		while (depth >= 0) {
+			int node = path[depth];
+			byte s = stage[depth];
+			if (s == 0) {
+				if (children[node] == 0) {
+					if (depth == levels - 1) {
+						visitor.visit(path, levels);
+					}
+					stage[depth] = 2;
+				} else if (f[depth] == 0) {
+					// hiker cannot progress if he has no food
+					stage[depth] = 2;
+				} else {
+					stage[depth] = 1;
+					if ((children[node] & HAS_LEFT) != 0
+							&& enter(node + 1, depth + 1, f[depth] - 1, r[depth], a[depth], path, f, r, a, stage)) {
+						depth++;
+					}
+				}
+			} else if (s == 1) {
+				stage[depth] = 2;
+				if ((children[node] & HAS_RIGHT) != 0
+						&& enter(right[node], depth + 1, f[depth] - 1, r[depth], a[depth], path, f, r, a, stage)) {
+					depth++;
+				}
+			} else {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Moves the hiker onto a node, picking up its supplies and passing its
+	 * obstacles, and stores the result at the specified depth of the stack.
+	 * Subtrees whose deepest leaves are above the bottom of the mountain are
+	 * skipped.
+	 *
+	 * @param node  index of the node
+	 * @param d     depth of the node
+	 * @param fd    food the hiker has when it gets to the node
+	 * @param rf    rafts the hiker has when it gets to the node
+	 * @param ax    axes the hiker has when it gets to the node
+	 * @param path  indices of the nodes on the current path
+	 * @param f     food the hiker has after passing each node on the path
+	 * @param r     rafts the hiker has after passing each node on the path
+	 * @param a     axes the hiker has after passing each node on the path
+	 * @param stage stage of each node on the path
+	 * @return true if the hiker was able to pass the obstacles at the node
+	 */
+	private boolean enter(int node, int d, int fd, int rf, int ax, int[] path, int[] f, int[] r, int[] a,
+			byte[] stage) {
+		if (d + height[node] != height[0]) {
+			return false;
+		}
+
+		// process supplies
+		fd += food[node];
+		rf += raft[node];
+		ax += axe[node];
+
+		// process obstacles
+		if (fallenTree[node] > 0) {
+			if (ax < fallenTree[node]) {
+				return false;
+			}
+			ax -= fallenTree[node];
+		}
+		if (river[node] > 0) {
+			if (rf < river[node]) {
+				return false;
+			}
+			rf -= river[node];
+		}
+
+		path[d] = node;
+		f[d] = fd;
+		r[d] = rf;
+		a[d] = ax;
+		stage[d] = 0;
+		return true;
+	}
+
+}
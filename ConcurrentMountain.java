@@ -0,0 +1,375 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is a mountain that can be added to and traversed by several
+ * threads at the same time. It follows the same AVL rules as BSTMountain, but
+ * its nodes are never changed once they are created. Adding a rest stop copies
+ * the nodes on the path from the root down to the new node, including the
+ * nodes moved by rotations, and then publishes the new root with a single
+ * atomic compare-and-set. Nodes that are not on that path are shared between
+ * the old and the new tree.
+ *
+ * A traversal reads the root once and explores that version of the tree, so
+ * it never sees a half-finished insert and it needs no locks, no matter how
+ * many rest stops are added while it runs. Writers that lose a race with
+ * another writer simply redo their insert on the newer tree.
+ *
+ * The RestStop objects themselves are shared, so their supplies and obstacles
+ * should not be changed once they have been added.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class ConcurrentMountain {
+
+	// current version of the tree
+	private final AtomicReference<Version> current = new AtomicReference<>(new Version(null, 0));
+
+	private final MountainMetrics metrics = new MountainMetrics();
+
+	/**
+	 * Adds the specified element to this tree if it is not already present. If
+	 * this tree already contains the element, the call leaves the tree unchanged
+	 * and returns false. This method may be called by several threads at once.
+	 *
+	 * @param data element to be added to this tree
+	 * @return true if this tree did not already contain the specified element
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public boolean add(RestStop data) {
+		if (data == null)
+			throw new NullPointerException("null value found");
+
+		while (true) {
+			Version version = current.get();
+			int[] rotations = new int[4];
+			Node root = add(data, version.root, rotations);
+			if (root == version.root) {
+				// duplicate found, nothing to publish
+				metrics.recordDuplicates(1);
+				return false;
+			}
+			if (current.compareAndSet(version, new Version(root, version.size + 1))) {
+				metrics.recordInserts(1);
+				for (int i = 0; i < rotations[0]; i++) {
+					metrics.recordLL();
+				}
+				for (int i = 0; i < rotations[1]; i++) {
+					metrics.recordLR();
+				}
+				for (int i = 0; i < rotations[2]; i++) {
+					metrics.recordRR();
+				}
+				for (int i = 0; i < rotations[3]; i++) {
+					metrics.recordRL();
+				}
+				metrics.recordHeight(root.height);
+				return true;
+			}
+			// another writer published first, so try again on its tree
+		}
+	}
+
+	/**
+	 * Actual recursive implementation of add. The nodes on the path to the new
+	 * node are copied rather than changed.
+	 *
+	 * @param data      element to be added to this tree
+	 * @param node      node at which the recursive call is made
+	 * @param rotations number of LL, LR, RR, and RL rotations performed so far
+	 * @return root of the new subtree, or node itself if the element is a
+	 *         duplicate
+	 */
+	private static Node add(RestStop data, Node node, int[] rotations) {
+		if (node == null) {
+			return new Node(data, null, null);
+		}
+
+		int comp = node.data.compareTo(data);
+		if (comp > 0) { // add to the left subtree
+			Node left = add(data, node.left, rotations);
+			if (left == node.left) {
+				return node;
+			}
+			return balance(new Node(node.data, left, node.right), rotations);
+		} else if (comp < 0) { // add to the right subtree
+			Node right = add(data, node.right, rotations);
+			if (right == node.right) {
+				return node;
+			}
+			return balance(new Node(node.data, node.left, right), rotations);
+		} else { // duplicate found, do not add
+			return node;
+		}
+	}
+
+	/**
+	 * Rebalances a newly copied node the same way BSTMountain.add does.
+	 *
+	 * @param node      node that may be out of balance
+	 * @param rotations number of LL, LR, RR, and RL rotations performed so far
+	 * @return root of the balanced subtree
+	 */
+	private static Node balance(Node node, int[] rotations) {
+		if (balanceFactor(node) == -2) {
+			Node B = node.left;
+			if (balanceFactor(B) == 1) {
+				// LR rotation
+				Node C = B.right;
+				rotations[1]++;
+				return new Node(C.data, new Node(B.data, B.left, C.left), new Node(node.data, C.right, node.right));
+			}
+			// LL rotation
+			rotations[0]++;
+			return new Node(B.data, B.left, new Node(node.data, B.right, node.right));
+		}
+		if (balanceFactor(node) == 2) {
+			Node B = node.right;
+			if (balanceFactor(B) == -1) {
+				// RL rotation
+				Node C = B.left;
+				rotations[3]++;
+				return new Node(C.data, new Node(node.data, node.left, C.left), new Node(B.data, C.right, B.right));
+			}
+			// RR rotation
+			rotations[2]++;
+			return new Node(B.data, new Node(node.data, node.left, B.left), B.right);
+		}
+		return node;
+	}
+
+	/**
+	 * Calculates the balance factor of a node, the height of its right subtree
+	 * minus the height of its left subtree.
+	 *
+	 * @param n node whose balance factor will be calculated
+	 * @return the balance factor
+	 */
+	private static int balanceFactor(Node n) {
+		return height(n.right) - height(n.left);
+	}
+
+	/**
+	 * Returns the height of a subtree.
+	 *
+	 * @param n root of the subtree
+	 * @return the height of the subtree, or -1 if it is empty
+	 */
+	private static int height(Node n) {
+		return n == null ? -1 : n.height;
+	}
+
+	/**
+	 * Returns the number of elements in the current version of this tree.
+	 *
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+		return current.get().size;
+	}
+
+	/**
+	 * Returns the counters of the inserts into this tree and of its traversals.
+	 *
+	 * @return the metrics of this tree
+	 */
+	public MountainMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Displays every path down the current version of the mountain that the
+	 * hiker can complete, like BSTMountain.traverse.
+	 *
+	 * @param h Hiker object that traverses down the mountain; it is not modified
+	 */
+	public void traverse(Hiker h) {
+		traverse(h, found -> {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < found.size(); i++) {
+				sb.append(found.get(i).getLabel()).append(' ');
+			}
+			System.out.println(sb);
+		});
+	}
+
+	/**
+	 * Hands every path down the current version of the mountain that the hiker
+	 * can complete to the specified sink. Rest stops added while the traversal
+	 * runs are not seen by it.
+	 *
+	 * @param h    Hiker object that traverses down the mountain; it is not modified
+	 * @param sink receives the paths that reach the bottom of the mountain
+	 */
+	public void traverse(Hiker h, PathSink sink) {
+		Node root = current.get().root;
+		if (root == null) {
+			return;
+		}
+		MountainMetrics.TraverseEvent event = new MountainMetrics.TraverseEvent();
+		event.begin();
+		MountainMetrics.Traversal counts = new MountainMetrics.Traversal();
+		int levels = root.height + 1;
+		traverseRec(root, root, h.getFood(), h.getRaft(), h.getAxe(), new int[levels], new int[levels],
+				new int[levels], new ArrayList<>(), sink, counts);
+		metrics.record(counts, event);
+	}
+
+	/**
+	 * Recursive implementation of the traverse method, following the same rules
+	 * as BSTMountain.traverse. The supplies the hiker has after passing each node
+	 * on the path are kept in arrays indexed by depth, and the rules for the
+	 * supplies and obstacles of a rest stop are the ones of BSTMountain.pass.
+	 *
+	 * @param root   root of the version of the tree being traversed
+	 * @param node   node that the hiker is at
+	 * @param fd     food the hiker has when it gets to the node
+	 * @param rf     rafts the hiker has when it gets to the node
+	 * @param ax     axes the hiker has when it gets to the node
+	 * @param food   food the hiker has after passing each node on the path
+	 * @param raft   rafts the hiker has after passing each node on the path
+	 * @param axe    axes the hiker has after passing each node on the path
+	 * @param path   path that the hiker is currently on
+	 * @param sink   receives every path that reaches the bottom of the mountain
+	 * @param counts counters of this traversal
+	 */
+	private static void traverseRec(Node root, Node node, int fd, int rf, int ax, int[] food, int[] raft,
+			int[] axe, ArrayList<RestStop> path, PathSink sink, MountainMetrics.Traversal counts) {
+		// subtrees whose deepest leaves are above the bottom only lead to cliffs
+		int d = path.size();
+		if (d + node.height != root.height) {
+			counts.prunedByBounds++;
+			return;
+		}
+
+		counts.nodesVisited++;
+		int passed = BSTMountain.pass(node.data, fd, rf, ax, food, raft, axe, d);
+		if (passed == BSTMountain.BLOCKED_BY_TREE) {
+			counts.prunedByAxe++;
+			return;
+		}
+		if (passed == BSTMountain.BLOCKED_BY_RIVER) {
+			counts.prunedByRaft++;
+			return;
+		}
+
+		path.add(node.data);
+		// checks if end of path has been reached
+		if (node.left == null && node.right == null) {
+			counts.bottoms++;
+			sink.accept(path);
+			path.remove(d);
+			return;
+		}
+
+		// hiker cannot progress if he has no food
+		if (food[d] == 0) {
+			counts.prunedByFood++;
+			path.remove(d);
+			return;
+		}
+
+		// both children start from the supplies left at this node, and the hiker
+		// uses one food to get to either of them
+		if (node.left != null) {
+			traverseRec(root, node.left, food[d] - 1, raft[d], axe[d], food, raft, axe, path, sink, counts);
+		}
+		if (node.right != null) {
+			traverseRec(root, node.right, food[d] - 1, raft[d], axe[d], food, raft, axe, path, sink, counts);
+		}
+
+		path.remove(d);
+	}
+
+	/**
+	 * Produces a tree-like representation of the current version of this tree.
+	 *
+	 * @return string containing tree-like representation of this tree
+	 */
+	public String toStringTree() {
+		StringBuilder sb = new StringBuilder();
+		toStringTree(sb, current.get().root, 0);
+		return sb.toString();
+	}
+
+	/**
+	 * Actual recursive implementation of toStringTree.
+	 *
+	 * @param sb    the StringBuilder object used to build the string
+	 * @param node  the node at which the recursive call is made
+	 * @param level level of the tree
+	 */
+	private static void toStringTree(StringBuilder sb, Node node, int level) {
+		// display the node
+		if (level > 0) {
+			for (int i = 0; i < level - 1; i++) {
+				sb.append("   ");
+			}
+			sb.append("|--");
+		}
+		if (node == null) {
+			sb.append("->\n");
+			return;
+		} else {
+			sb.append(node.data + "\n");
+		}
+
+		// display the left subtree
+		toStringTree(sb, node.left, level + 1);
+		// display the right subtree
+		toStringTree(sb, node.right, level + 1);
+	}
+
+	/**
+	 * Node of the tree. Nodes are never changed after they are created.
+	 */
+	private static final class Node {
+
+		final RestStop data;
+		final int height;
+		final Node left;
+		final Node right;
+
+		/**
+		 * Creates a new node with the specified data and children. The height is
+		 * computed from the children.
+		 *
+		 * @param data  RestStop object that the node will store
+		 * @param left  left child of the node
+		 * @param right right child of the node
+		 */
+		Node(RestStop data, Node left, Node right) {
+			this.data = data;
+			this.left = left;
+			this.right = right;
+			this.height = 1 + Math.max(height(left), height(right));
+		}
+
+	}
+
+	/**
+	 * Root and size of one version of the tree, published together.
+	 */
+	private static final class Version {
+
+		final Node root;
+		final int size;
+
+		/**
+		 * Creates a new version.
+		 *
+		 * @param root root of the tree
+		 * @param size number of elements in the tree
+		 */
+		Version(Node root, int size) {
+			this.root = root;
+			this.size = size;
+		}
+
+	}
+
+}
@@ -32,9 +32,9 @@ public class Hiker {
 	 * @param axe  the amount of axes the Hiker object has
 	 */
 	public Hiker(int food, int raft, int axe) {
-		this.food = 0;
-		this.raft = 0;
-		this.axe = 0;
+		this.food = food;
+		this.raft = raft;
+		this.axe = axe;
 	}
 
 	/**
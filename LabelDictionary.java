@@ -0,0 +1,217 @@
+package project5;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * This class stores a fixed set of rest stop labels in sorted order and
+ * assigns each label an ordinal, its position in that order. Since labels on
+ * the same trail tend to share long prefixes, the labels are front-coded: they
+ * are grouped into blocks, the first label of each block is stored in full,
+ * and every other label only stores the length of the prefix it shares with
+ * the label before it and the rest of its bytes.
+ *
+ * RestStop objects created with a dictionary and an ordinal do not keep a
+ * String of their own, and two such rest stops from the same dictionary are
+ * compared by their ordinals alone.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class LabelDictionary {
+
+	private static final int BLOCK_SIZE = 16; // labels per front-coded block
+
+	private final int size;
+	private final byte[] data; // front-coded labels
+	private final int[] blockStart; // index in data of the first label of each block
+	private final String[] heads; // first label of each block, used for searching
+
+	/**
+	 * Creates a new dictionary holding the specified labels. Duplicate labels are
+	 * stored once.
+	 *
+	 * @param labels labels to be stored
+	 * @throws IllegalArgumentException if any label is empty
+	 */
+	public LabelDictionary(Collection<String> labels) {
+		TreeSet<String> sorted = new TreeSet<>(labels);
+		if (!sorted.isEmpty() && sorted.first().equals("")) {
+			throw new IllegalArgumentException("Invalid label: Label cannot be an empty string");
+		}
+
+		this.size = sorted.size();
+		int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		this.blockStart = new int[blocks];
+		this.heads = new String[blocks];
+
+		byte[] out = new byte[64];
+		int length = 0;
+		byte[] previous = new byte[0];
+		int i = 0;
+		for (String label : sorted) {
+			byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+			int shared = 0;
+			if (i % BLOCK_SIZE == 0) {
+				blockStart[i / BLOCK_SIZE] = length;
+				heads[i / BLOCK_SIZE] = label;
+			} else {
+				int max = Math.min(previous.length, bytes.length);
+				while (shared < max && previous[shared] == bytes[shared]) {
+					shared++;
+				}
+			}
+
+			// the shared length, the suffix length, and the suffix bytes
+			if (length + bytes.length - shared + 10 > out.length) {
+				out = Arrays.copyOf(out, Math.max(out.length * 2, length + bytes.length - shared + 10));
+			}
+			length = writeVarint(out, length, shared);
+			length = writeVarint(out, length, bytes.length - shared);
+			System.arraycopy(bytes, shared, out, length, bytes.length - shared);
+			length += bytes.length - shared;
+
+			previous = bytes;
+			i++;
+		}
+		this.data = Arrays.copyOf(out, length);
+	}
+
+	/**
+	 * Returns the number of labels in this dictionary.
+	 *
+	 * @return the number of labels in this dictionary
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the label with the specified ordinal.
+	 *
+	 * @param ordinal position of the label in sorted order
+	 * @return the label
+	 * @throws IndexOutOfBoundsException if there is no label with that ordinal
+	 */
+	public String label(int ordinal) {
+		if (ordinal < 0 || ordinal >= size) {
+			throw new IndexOutOfBoundsException("Invalid ordinal: " + ordinal);
+		}
+		int block = ordinal / BLOCK_SIZE;
+		if (ordinal % BLOCK_SIZE == 0) {
+			return heads[block];
+		}
+
+		byte[] bytes = new byte[32];
+		int length = 0;
+		int[] position = { blockStart[block] };
+		for (int i = block * BLOCK_SIZE; i <= ordinal; i++) {
+			int shared = readVarint(position);
+			int suffix = readVarint(position);
+			length = shared + suffix;
+			if (length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length));
+			}
+			System.arraycopy(data, position[0], bytes, shared, suffix);
+			position[0] += suffix;
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the ordinal of the specified label.
+	 *
+	 * @param label label to look up
+	 * @return position of the label in sorted order, or -1 if the label is not in
+	 *         this dictionary
+	 */
+	public int ordinal(String label) {
+		// find the last block whose first label is not greater than the label
+		int lo = 0;
+		int hi = heads.length - 1;
+		int block = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (heads[mid].compareTo(label) <= 0) {
+				block = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		if (block < 0) {
+			return -1;
+		}
+
+		// decode the labels of the block one after the other
+		int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+		byte[] bytes = new byte[32];
+		int[] position = { blockStart[block] };
+		for (int i = block * BLOCK_SIZE; i < end; i++) {
+			int shared = readVarint(position);
+			int suffix = readVarint(position);
+			if (shared + suffix > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, shared + suffix));
+			}
+			System.arraycopy(data, position[0], bytes, shared, suffix);
+			position[0] += suffix;
+
+			int comp = new String(bytes, 0, shared + suffix, StandardCharsets.UTF_8).compareTo(label);
+			if (comp == 0) {
+				return i;
+			}
+			if (comp > 0) {
+				break;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of bytes used to store the labels.
+	 *
+	 * @return the number of bytes of front-coded label data
+	 */
+	public int byteSize() {
+		return data.length;
+	}
+
+	/**
+	 * Writes a non-negative number using seven bits per byte.
+	 *
+	 * @param out      array to write to
+	 * @param position index at which to write
+	 * @param value    number to write
+	 * @return index right after the written bytes
+	 */
+	private static int writeVarint(byte[] out, int position, int value) {
+		while (value >= 0x80) {
+			out[position++] = (byte) (value | 0x80);
+			value >>>= 7;
+		}
+		out[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * Reads a number written by writeVarint.
+	 *
+	 * @param position index at which to read; moved past the read bytes
+	 * @return the number
+	 */
+	private int readVarint(int[] position) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[position[0]++];
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+}
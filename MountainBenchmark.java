@@ -0,0 +1,222 @@
+package project5;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class is a benchmark harness for the parsing, building and traversing of
+ * mountains. All inputs are generated in memory from a fixed seed, so runs are
+ * repeatable and no input files are needed. Each benchmark is warmed up and then
+ * measured over several timed iterations, and is reported in operations per
+ * second along with the number of bytes allocated per operation.
+ *
+ * The program may be run with a command line argument; only the benchmarks
+ * whose names contain that argument are run.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class MountainBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASURED_ITERATIONS = 5;
+	private static final long ITERATION_NANOS = 1_000_000_000L;
+	private static final long SEED = 102;
+
+	// results are stored here so that the JIT cannot discard the benchmarked work
+	private static volatile Object blackhole;
+
+	public static void main(String[] args) {
+		String filter = args.length > 0 ? args[0] : "";
+		System.out.printf("%-36s %16s %14s %14s%n", "benchmark", "ops/s", "B/op", "MB/s alloc");
+
+		// parsing
+		for (int lines : new int[] { 1_000, 100_000 }) {
+			byte[] input = generateInput(lines);
+			RestStopParser parser = new RestStopParser();
+			run(filter, "parse/" + lines, () -> blackhole = parser.parse(ByteBuffer.wrap(input)));
+		}
+
+		// building
+		for (int size : new int[] { 1_000, 100_000 }) {
+			for (String order : new String[] { "sorted", "random", "zigzag" }) {
+				List<RestStop> stops = stops(size, order);
+				run(filter, "add/" + order + "/" + size, () -> {
+					BSTMountain<RestStop> mountain = new BSTMountain<>();
+					for (RestStop stop : stops) {
+						mountain.add(stop);
+					}
+					blackhole = mountain;
+				});
+			}
+		}
+
+		// traversing
+		BSTMountain<RestStop> mountain = new BSTMountain<>();
+		for (RestStop stop : stops(100_000, "random")) {
+			mountain.add(stop);
+		}
+		int[][] kits = { { 0, 0, 0 }, { 5, 1, 1 }, { 50, 10, 10 } };
+		for (int[] kit : kits) {
+			String name = "traverse/food" + kit[0] + "-raft" + kit[1] + "-axe" + kit[2];
+			run(filter, name, () -> {
+				long[] found = new long[1];
+				mountain.traverse(hiker(kit), path -> found[0] += path.size());
+				blackhole = found;
+			});
+		}
+
+		run(filter, "toStringTree/100000", () -> blackhole = mountain.toStringTree());
+	}
+
+	/**
+	 * Runs a single benchmark and displays its results.
+	 *
+	 * @param filter    only benchmarks whose names contain this string are run
+	 * @param name      name of the benchmark
+	 * @param operation operation that is measured
+	 */
+	private static void run(String filter, String name, Runnable operation) {
+		if (!name.contains(filter)) {
+			return;
+		}
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			measure(operation);
+		}
+		long ops = 0;
+		long nanos = 0;
+		long bytes = 0;
+		for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+			long[] result = measure(operation);
+			ops += result[0];
+			nanos += result[1];
+			bytes += result[2];
+		}
+		double seconds = nanos / 1e9;
+		System.out.printf("%-36s %16.1f %14d %14.1f%n", name, ops / seconds, bytes / ops,
+				bytes / seconds / (1024 * 1024));
+	}
+
+	/**
+	 * Repeats an operation for one iteration.
+	 *
+	 * @param operation operation that is measured
+	 * @return the number of operations, the elapsed nanoseconds, and the number of
+	 *         bytes allocated
+	 */
+	private static long[] measure(Runnable operation) {
+		long startBytes = allocatedBytes();
+		long start = System.nanoTime();
+		long ops = 0;
+		long elapsed;
+		do {
+			operation.run();
+			ops++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < ITERATION_NANOS);
+		return new long[] { ops, elapsed, allocatedBytes() - startBytes };
+	}
+
+	/**
+	 * Returns the number of bytes allocated so far by the current thread, or zero
+	 * if the JVM does not track allocations.
+	 *
+	 * @return the number of bytes allocated by the current thread
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+		}
+		return 0;
+	}
+
+	/**
+	 * Generates the lines of an input file.
+	 *
+	 * @param lines number of lines to generate
+	 * @return bytes of the input file
+	 */
+	private static byte[] generateInput(int lines) {
+		Random random = new Random(SEED);
+		StringBuilder sb = new StringBuilder();
+		String[] supplies = { "food", "raft", "axe" };
+		String[] obstacles = { "river", "fallen tree" };
+		for (int i = 0; i < lines; i++) {
+			sb.append(label(random.nextInt(lines)));
+			for (int s = random.nextInt(4); s > 0; s--) {
+				sb.append(' ').append(supplies[random.nextInt(supplies.length)]);
+			}
+			for (int o = random.nextInt(3) == 0 ? 1 : 0; o > 0; o--) {
+				sb.append(' ').append(obstacles[random.nextInt(obstacles.length)]);
+			}
+			sb.append('\n');
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Generates rest stops in one of several insertion orders. In the sorted order
+	 * every insert goes to the right end of the tree, in the random order the
+	 * inserts are spread over the tree, and in the zigzag order the labels
+	 * alternate between the low and the high end of the range, which keeps
+	 * triggering double rotations.
+	 *
+	 * @param size  number of rest stops
+	 * @param order sorted, random, or zigzag
+	 * @return rest stops in the requested order
+	 */
+	private static List<RestStop> stops(int size, String order) {
+		Random random = new Random(SEED);
+		List<RestStop> stops = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			stops.add(new RestStop(label(i), random.nextInt(3), random.nextInt(2), random.nextInt(2),
+					random.nextInt(5) == 0 ? 1 : 0, random.nextInt(5) == 0 ? 1 : 0));
+		}
+		if (order.equals("random")) {
+			Collections.shuffle(stops, random);
+		} else if (order.equals("zigzag")) {
+			List<RestStop> zigzag = new ArrayList<>(size);
+			for (int lo = 0, hi = size - 1; lo <= hi; lo++, hi--) {
+				zigzag.add(stops.get(lo));
+				if (lo != hi) {
+					zigzag.add(stops.get(hi));
+				}
+			}
+			stops = zigzag;
+		}
+		return stops;
+	}
+
+	/**
+	 * Returns the label of the rest stop with the specified number. Labels are
+	 * padded with zeros so that they sort in numeric order.
+	 *
+	 * @param i number of the rest stop
+	 * @return the label
+	 */
+	private static String label(int i) {
+		return String.format("stop%08d", i);
+	}
+
+	/**
+	 * Creates a hiker carrying the specified supplies.
+	 *
+	 * @param kit food, rafts, and axes
+	 * @return the hiker
+	 */
+	private static Hiker hiker(int[] kit) {
+		Hiker h = new Hiker();
+		h.setFood(kit[0]);
+		h.setRaft(kit[1]);
+		h.setAxe(kit[2]);
+		return h;
+	}
+
+}
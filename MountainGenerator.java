@@ -0,0 +1,392 @@
+package project5;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * This class is a program that generates input files for MountainHike. It must
+ * be run with the number of rest stops to generate, optionally followed by
+ * options of the form --name=value:
+ *
+ * --preset   default, mostly-cliffs, resource-starved, or all-succeed
+ * --seed     seed of the random number generator
+ * --labels   sequential (zero padded numbers that share a prefix) or random
+ * --prefix   prefix of sequential labels
+ * --order    random or sorted order of sequential labels
+ * --food, --raft, --axe, --fallen, --river
+ *            probability that a rest stop has one of that supply or obstacle
+ * --out      name of the output file; the output is written to the console if
+ *            this is not given
+ *
+ * The rest stops are written one line at a time, so the size of the output is
+ * not limited by memory. Sequential labels in random order are produced by a
+ * seeded permutation of their numbers rather than by shuffling a list.
+ *
+ * The mostly-cliffs preset writes the labels of a Fibonacci tree, the AVL tree
+ * with the fewest nodes for its height, in level order. Adding the rest stops
+ * in that order builds exactly that tree, in which most leaves are cliffs
+ * rather than the bottom of the mountain. The number of rest stops is rounded
+ * down to the size of the largest Fibonacci tree that fits.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class MountainGenerator {
+
+	private long count;
+	private long seed = 1;
+	private String labels = "sequential";
+	private String prefix = "stop";
+	private String order = "random";
+	private boolean cliffs;
+	private double food = 0.5;
+	private double raft = 0.2;
+	private double axe = 0.2;
+	private double fallen = 0.15;
+	private double river = 0.15;
+	private String out;
+
+	public static void main(String[] args) {
+
+		if (args.length == 0) {
+			System.err.println("Usage Error: the program expects the number of rest stops as an argument.\n");
+			System.exit(1);
+		}
+
+		MountainGenerator generator = new MountainGenerator();
+		try {
+			generator.count = Long.parseLong(args[0]);
+			if (generator.count < 0) {
+				throw new NumberFormatException();
+			}
+			for (int i = 1; i < args.length; i++) {
+				generator.option(args[i]);
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Usage Error: invalid number in the arguments.\n");
+			System.exit(1);
+		} catch (IllegalArgumentException e) {
+			System.err.println("Usage Error: " + e.getMessage() + "\n");
+			System.exit(1);
+		}
+
+		try (Writer writer = generator.out == null
+				? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+				: Files.newBufferedWriter(Paths.get(generator.out), StandardCharsets.UTF_8)) {
+			generator.generate(writer);
+		} catch (IOException e) {
+			System.err.println("Error: the output cannot be written: " + e.getMessage() + "\n");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Applies a single command line option. Presets are applied in place, so
+	 * options given after a preset override it.
+	 *
+	 * @param arg option of the form --name=value
+	 * @throws IllegalArgumentException if the option is not recognized
+	 */
+	private void option(String arg) {
+		int eq = arg.indexOf('=');
+		if (!arg.startsWith("--") || eq < 0) {
+			throw new IllegalArgumentException("options must have the form --name=value: " + arg);
+		}
+		String name = arg.substring(2, eq);
+		String value = arg.substring(eq + 1);
+		switch (name) {
+		case "preset":
+			preset(value);
+			break;
+		case "seed":
+			seed = Long.parseLong(value);
+			break;
+		case "labels":
+			if (!value.equals("sequential") && !value.equals("random")) {
+				throw new IllegalArgumentException("unknown label distribution: " + value);
+			}
+			labels = value;
+			break;
+		case "prefix":
+			prefix = value;
+			break;
+		case "order":
+			if (!value.equals("sorted") && !value.equals("random")) {
+				throw new IllegalArgumentException("unknown order: " + value);
+			}
+			order = value;
+			break;
+		case "food":
+			food = probability(value);
+			break;
+		case "raft":
+			raft = probability(value);
+			break;
+		case "axe":
+			axe = probability(value);
+			break;
+		case "fallen":
+			fallen = probability(value);
+			break;
+		case "river":
+			river = probability(value);
+			break;
+		case "out":
+			out = value;
+			break;
+		default:
+			throw new IllegalArgumentException("unknown option: " + name);
+		}
+	}
+
+	/**
+	 * Applies a preset.
+	 *
+	 * @param name name of the preset
+	 * @throws IllegalArgumentException if the preset is not recognized
+	 */
+	private void preset(String name) {
+		switch (name) {
+		case "default":
+			break;
+		case "mostly-cliffs":
+			// plenty of supplies, so hikers get to the cliffs
+			cliffs = true;
+			food = 1;
+			raft = 0.5;
+			axe = 0.5;
+			fallen = 0.1;
+			river = 0.1;
+			break;
+		case "resource-starved":
+			food = 0.05;
+			raft = 0.02;
+			axe = 0.02;
+			fallen = 0.3;
+			river = 0.3;
+			break;
+		case "all-succeed":
+			// food at every stop and no obstacles
+			food = 1;
+			raft = 0;
+			axe = 0;
+			fallen = 0;
+			river = 0;
+			break;
+		default:
+			throw new IllegalArgumentException("unknown preset: " + name);
+		}
+	}
+
+	/**
+	 * Parses a probability.
+	 *
+	 * @param value text of the probability
+	 * @return the probability
+	 * @throws IllegalArgumentException if the value is not between 0 and 1
+	 */
+	private static double probability(String value) {
+		double p = Double.parseDouble(value);
+		if (!(p >= 0 && p <= 1)) {
+			throw new IllegalArgumentException("probabilities must be between 0 and 1: " + value);
+		}
+		return p;
+	}
+
+	/**
+	 * Writes the rest stops.
+	 *
+	 * @param writer destination of the lines
+	 * @throws IOException if the output cannot be written
+	 */
+	private void generate(Writer writer) throws IOException {
+		Random random = new Random(seed);
+		StringBuilder line = new StringBuilder();
+
+		if (cliffs) {
+			int height = 0;
+			while (fibonacciSize(height + 1) <= count) {
+				height++;
+			}
+			if (count == 0) {
+				return;
+			}
+			int width = Long.toString(fibonacciSize(height)).length();
+			for (int depth = 0; depth <= height; depth++) {
+				writeLevel(writer, random, line, 0, height, depth, width);
+			}
+			return;
+		}
+
+		int width = Long.toString(Math.max(count - 1, 0)).length();
+		long[] keys = { random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong() };
+		int bits = 2;
+		while ((1L << bits) < count) {
+			bits += 2;
+		}
+		for (long i = 0; i < count; i++) {
+			String label;
+			if (labels.equals("random")) {
+				label = randomLabel(random);
+			} else {
+				long number = order.equals("sorted") ? i : permute(i, bits, keys);
+				label = sequentialLabel(number, width);
+			}
+			writeStop(writer, random, line, label);
+		}
+	}
+
+	/**
+	 * Writes the nodes at one depth of a Fibonacci tree, from left to right.
+	 *
+	 * @param writer destination of the lines
+	 * @param random random number generator
+	 * @param line   reusable buffer for a line
+	 * @param lo     number of the leftmost node of the subtree
+	 * @param height height of the subtree
+	 * @param depth  depth of the nodes to write, relative to the subtree
+	 * @param width  number of digits in a label
+	 * @throws IOException if the output cannot be written
+	 */
+	private void writeLevel(Writer writer, Random random, StringBuilder line, long lo, int height, int depth,
+			int width) throws IOException {
+		if (height < 0) {
+			return;
+		}
+		// the left subtree is one taller than the right one
+		long root = lo + fibonacciSize(height - 1);
+		if (depth == 0) {
+			writeStop(writer, random, line, sequentialLabel(root, width));
+			return;
+		}
+		writeLevel(writer, random, line, lo, height - 1, depth - 1, width);
+		writeLevel(writer, random, line, root + 1, height - 2, depth - 1, width);
+	}
+
+	/**
+	 * Returns the number of nodes of a Fibonacci tree of the specified height.
+	 *
+	 * @param height height of the tree, -1 for an empty tree
+	 * @return number of nodes
+	 */
+	private static long fibonacciSize(int height) {
+		long smaller = 0; // size at height - 2
+		long size = height < 0 ? 0 : 1;
+		for (int h = 1; h <= height; h++) {
+			long next = size + smaller + 1;
+			smaller = size;
+			size = next;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes one rest stop with randomly chosen supplies and obstacles.
+	 *
+	 * @param writer destination of the line
+	 * @param random random number generator
+	 * @param line   reusable buffer for the line
+	 * @param label  label of the rest stop
+	 * @throws IOException if the output cannot be written
+	 */
+	private void writeStop(Writer writer, Random random, StringBuilder line, String label) throws IOException {
+		line.setLength(0);
+		line.append(label);
+		if (random.nextDouble() < food) {
+			line.append(" food");
+		}
+		if (random.nextDouble() < raft) {
+			line.append(" raft");
+		}
+		if (random.nextDouble() < axe) {
+			line.append(" axe");
+		}
+		if (random.nextDouble() < river) {
+			line.append(" river");
+		}
+		if (random.nextDouble() < fallen) {
+			line.append(" fallen tree");
+		}
+		line.append('\n');
+		writer.append(line);
+	}
+
+	/**
+	 * Returns a sequential label. Numbers are padded with zeros so that labels
+	 * sort in numeric order.
+	 *
+	 * @param number number of the rest stop
+	 * @param width  number of digits
+	 * @return the label
+	 */
+	private String sequentialLabel(long number, int width) {
+		String digits = Long.toString(number);
+		StringBuilder sb = new StringBuilder(prefix.length() + width).append(prefix);
+		for (int i = digits.length(); i < width; i++) {
+			sb.append('0');
+		}
+		return sb.append(digits).toString();
+	}
+
+	/**
+	 * Returns a random label of eight lowercase letters. Random labels may repeat,
+	 * in which case the repeated rest stops are skipped by BSTMountain.add.
+	 *
+	 * @param random random number generator
+	 * @return the label
+	 */
+	private static String randomLabel(Random random) {
+		char[] chars = new char[8];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Maps a number to a unique number below the count, using a four round
+	 * Feistel network over the smallest power of four that holds the count and
+	 * retrying on results that are too large.
+	 *
+	 * @param i    number to map, less than the count
+	 * @param bits even number of bits of the Feistel network
+	 * @param keys round keys
+	 * @return the mapped number
+	 */
+	private long permute(long i, int bits, long[] keys) {
+		int half = bits / 2;
+		long mask = (1L << half) - 1;
+		long x = i;
+		do {
+			long left = x >>> half;
+			long right = x & mask;
+			for (long key : keys) {
+				long next = left ^ (mix(right ^ key) & mask);
+				left = right;
+				right = next;
+			}
+			x = (left << half) | right;
+		} while (x >= count);
+		return x;
+	}
+
+	/**
+	 * Scrambles the bits of a number.
+	 *
+	 * @param z number to scramble
+	 * @return scrambled number
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
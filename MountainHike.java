@@ -1,21 +1,58 @@
 package project5;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
  * This class is the program that simulates a hiker traversing a mountain. It
  * must be run with a command line argument that includes an input file name.
  * The program parses and validates the argument, and if valid, the input file
- * is read and parsed. Each valid line in the file will be added to the
- * BSTMountain as a node. Once the file is fully parsed, the program sends a
- * hiker down the mountain, and any valid paths are displayed.
+ * is read and parsed by a RestStopParser. Each valid line in the file will be
+ * added to the BSTMountain as a node. Once the file is fully parsed, the
+ * program sends a hiker down the mountain, and any valid paths are displayed.
  * 
  * Any invalid command line arguments or files will cause the program to display
  * an error message.
  * 
+ * The paths are displayed in the format of traverse unless the option
+ * --format=csv or --format=jsonl follows the input, and are written to a file
+ * instead of the console if the option --output=file is given.
+ * 
+ * If the argument is a single dash, the rest stops are read from the standard
+ * input. One thread reads and parses the lines while another adds the rest
+ * stops to the mountain, and a bounded queue between them makes the reading
+ * thread wait whenever it gets too far ahead.
+ * 
+ * If the argument is a directory, or a name that is not an existing file and
+ * contains the glob characters * ? [ or {, every matching file is processed in
+ * one run. Each file is parsed and traversed on its own virtual thread, and
+ * no more files than there are processors are parsed, built, or traversed at
+ * once. The paths of each file are displayed prefixed with the file name, in
+ * the order of the file names, unless the option --out=directory is given, in
+ * which case the paths of each file are written to a file of the same name
+ * ending in .out in that directory. Paths that cannot be displayed yet wait in
+ * temporary files rather than in memory. A summary of the run is displayed on
+ * the error stream.
+ * 
  * 
  * @author Joshua Forlenza
  *
@@ -23,6 +60,11 @@ import java.util.Scanner;
 
 public class MountainHike {
 
+	// rest stops handed from the reading thread to the building thread at once
+	private static final int STREAM_BATCH_SIZE = 1024;
+	// batches that may wait for the building thread before reading stops
+	private static final int STREAM_QUEUE_BATCHES = 16;
+
 	public static void main(String[] args) {
 
 		// code for validating command line argument is taken from project 2 class
@@ -33,6 +75,29 @@ public class MountainHike {
 			System.exit(1);
 		}
 
+		// a directory or a glob pattern names a batch of files, but an existing
+		// file is always read on its own, even if its name contains glob characters
+		File first = new File(args[0]);
+		if (!first.isFile() && (first.isDirectory() || args[0].matches(".*[*?\\[{].*"))) {
+			batch(args);
+			return;
+		}
+
+		// the paths are written as requested by the options after the input
+		Output output = null;
+		try {
+			output = new Output(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println("Usage Error: " + e.getMessage() + "\n");
+			System.exit(1);
+		}
+
+		// a single dash reads the rest stops from the standard input
+		if (args[0].equals("-")) {
+			stream(output);
+			return;
+		}
+
 		// verify that command line argument contains a name of an existing file
 		File inputFile = new File(args[0]);
 		if (!inputFile.exists()) {
@@ -46,107 +111,341 @@ public class MountainHike {
 			System.exit(1);
 		}
 
-		// open the file for reading
-		Scanner inRestStops = null;
+		// parse, build, and traverse record their counters in the same metrics
+		MountainMetrics metrics = new MountainMetrics();
+
+		// read the rest stops from the file
+		List<RestStop> stops = null;
+		RestStopParser parser = new RestStopParser();
+		parser.setMetrics(metrics);
 
 		try {
-			inRestStops = new Scanner(inputFile);
-		} catch (FileNotFoundException e) {
+			stops = parser.parse(inputFile.toPath());
+		} catch (IOException e) {
 			System.err.println("Error: the file " + inputFile.getAbsolutePath() 
 			+ " cannot be opened for reading.\n");
 			System.exit(1);
 		}
 
-		String line = null;
-		String[] parseLine = null;
+		BSTMountain<RestStop> newMountain = new BSTMountain<>();
+		newMountain.setMetrics(metrics);
 
-		BSTMountain newMountain = new BSTMountain();
+		MountainMetrics.Snapshot before = metrics.snapshot();
+		MountainMetrics.BuildEvent build = new MountainMetrics.BuildEvent();
+		build.begin();
+		for (RestStop newRS : stops) {
+			newMountain.add(newRS);
+		}
+		metrics.record(build, before);
 
-		String curr = null;
+		output.write(newMountain);
 
-		while (inRestStops.hasNextLine()) {
-			String label = "";
-			int food = 0;
-			int raft = 0;
-			int axe = 0;
-			int fallenTree = 0;
-			int river = 0;
-			RestStop newRS = null;
+	}
 
+	/**
+	 * Reads the rest stops from the standard input and sends a hiker down the
+	 * mountain. The rest stops are parsed on a separate thread and handed over in
+	 * batches, so the mountain is built while the input is still being read.
+	 *
+	 * @param output where and how the paths are written
+	 */
+	private static void stream(Output output) {
+		MountainMetrics metrics = new MountainMetrics();
+		RestStopParser parser = new RestStopParser();
+		parser.setMetrics(metrics);
+
+		// an empty batch marks the end of the input
+		BlockingQueue<List<RestStop>> queue = new ArrayBlockingQueue<>(STREAM_QUEUE_BATCHES);
+		List<RestStop> end = Collections.emptyList();
+		IOException[] failure = new IOException[1];
+		Thread reader = new Thread(() -> {
 			try {
-				line = inRestStops.nextLine();
-				parseLine = line.split(" ");
-				if (parseLine.length == 0) {
-					continue;
+				parser.parse(System.in, STREAM_BATCH_SIZE, batch -> put(queue, batch));
+			} catch (IOException e) {
+				failure[0] = e;
+			} finally {
+				put(queue, end);
+			}
+		}, "rest stop reader");
+		reader.start();
+
+		BSTMountain<RestStop> newMountain = new BSTMountain<>();
+		newMountain.setMetrics(metrics);
+
+		MountainMetrics.Snapshot before = metrics.snapshot();
+		MountainMetrics.BuildEvent build = new MountainMetrics.BuildEvent();
+		build.begin();
+		try {
+			List<RestStop> batch;
+			while ((batch = queue.take()) != end) {
+				for (RestStop newRS : batch) {
+					newMountain.add(newRS);
 				}
-				label = parseLine[0];
+			}
+			reader.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		metrics.record(build, before);
 
-				// supplies processing
-				int counter = 1;
-				for (int i = 1; i < parseLine.length; i++) {
-					curr = parseLine[i];
+		if (failure[0] != null) {
+			System.err.println("Error: the standard input cannot be read.\n");
+			System.exit(1);
+		}
 
-					// prevents any more supplies from being read once
-					// the list of obstacles begins
-					if (curr.equals("river")) {
-						break;
-					}
-					if (curr.equals("fallen")) {
-						if (parseLine[i + 1].equals("tree")) {
-							break;
-						}
-					}
+		output.write(newMountain);
+	}
 
-					if (curr.equals("food")) {
-						food++;
-					}
-					if (curr.equals("raft")) {
-						raft++;
-					}
-					if (curr.equals("axe")) {
-						axe++;
-					}
+	/**
+	 * Hands a batch of rest stops to the building thread, waiting while the
+	 * queue is full.
+	 *
+	 * @param queue queue read by the building thread
+	 * @param batch batch of rest stops
+	 */
+	private static void put(BlockingQueue<List<RestStop>> queue, List<RestStop> batch) {
+		try {
+			queue.put(batch);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while handing over rest stops", e);
+		}
+	}
 
-					counter++;
-				}
+	/**
+	 * Processes every file named by a directory or a glob pattern.
+	 *
+	 * @param args command line arguments: the directory or pattern, optionally
+	 *             followed by --out=directory
+	 */
+	private static void batch(String[] args) {
+		Path outDir = null;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith("--out=")) {
+				outDir = Paths.get(args[i].substring("--out=".length()));
+			} else {
+				System.err.println("Usage Error: unknown option " + args[i] + "\n");
+				System.exit(1);
+			}
+		}
 
-				// obstacles processing
-				for (int i = counter; i < parseLine.length; i++) {
-					curr = parseLine[i];
-					if (curr.equals("river")) {
-						river++;
-					}
-					if (curr.equals("fallen")) {
-						if (parseLine[i + 1].equals("tree")) {
-							fallenTree++;
+		List<Path> files = null;
+		try {
+			files = batchFiles(args[0]);
+			if (outDir != null) {
+				Files.createDirectories(outDir);
+			}
+		} catch (IOException e) {
+			System.err.println("Error: " + e.getMessage() + " cannot be read or written.\n");
+			System.exit(1);
+		}
+
+		long start = System.nanoTime();
+		// only parsing, building, and traversing need a processor
+		Semaphore processors = new Semaphore(Runtime.getRuntime().availableProcessors());
+		List<Future<Result>> results = new ArrayList<>();
+		Path out = outDir;
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (Path file : files) {
+				results.add(executor.submit(() -> hike(file, out, processors)));
+			}
+
+			// display the results in the order of the files as they become ready
+			long paths = 0;
+			int failed = 0;
+			for (int i = 0; i < files.size(); i++) {
+				try {
+					Result result = results.get(i).get();
+					if (result.paths != null) {
+						try {
+							Files.copy(result.paths, System.out);
+						} finally {
+							Files.deleteIfExists(result.paths);
 						}
 					}
+					paths += result.count;
+				} catch (ExecutionException e) {
+					failed++;
+					System.err.println("Error: the file " + files.get(i).toAbsolutePath() + " could not be hiked: "
+							+ e.getCause());
+				} catch (IOException e) {
+					failed++;
+					System.err.println("Error: the paths of the file " + files.get(i).toAbsolutePath()
+							+ " could not be displayed: " + e);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
 				}
+			}
+			System.out.flush();
+			System.err.printf("Summary: %d files, %d failed, %d paths, %d ms%n", files.size(), failed, paths,
+					(System.nanoTime() - start) / 1_000_000);
+		}
+	}
 
-				newRS = new RestStop(label, food, raft, axe, fallenTree, river);
-				newMountain.add(newRS);
+	/**
+	 * Returns the files named by a directory or a glob pattern, sorted by name.
+	 * Only the last part of a pattern may contain glob characters.
+	 *
+	 * @param arg directory or glob pattern
+	 * @return the regular files that match
+	 * @throws IOException if the directory cannot be listed
+	 */
+	private static List<Path> batchFiles(String arg) throws IOException {
+		Path path = Paths.get(arg);
+		Path dir = path;
+		String glob = "*";
+		if (!Files.isDirectory(path)) {
+			dir = path.getParent() == null ? Paths.get(".") : path.getParent();
+			glob = path.getFileName().toString();
+		}
 
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path file : stream) {
+				if (Files.isRegularFile(file) && matcher.matches(file.getFileName())) {
+					files.add(file);
+				}
 			}
+		}
+		Collections.sort(files);
+		return files;
+	}
 
-			catch (NoSuchElementException ex) {
-				// caused by an incomplete or miss-formatted line in the input file
-				continue;
-			} catch (IndexOutOfBoundsException ex) {
-				// caused by [i+1] on line 77
-				newRS = new RestStop(label, food, raft, axe, fallenTree, river);
-				newMountain.add(newRS);
-				continue;
-			} catch (IllegalArgumentException ex) {
-				// caused by creating a new RestStop object with an empty label
-				continue;
-			} catch (NullPointerException ex) {
-				// caused by a null RestStop being added into the BSTMountatin
-				continue;
+	/**
+	 * Parses one file of a batch and sends a hiker down its mountain. The paths
+	 * are written as they are found, either to the output directory or, prefixed
+	 * with the file name, to a temporary file that is displayed once the files
+	 * before it have been, so no file keeps its paths in memory.
+	 *
+	 * @param file       input file
+	 * @param outDir     directory to write the paths to, or null to write them to
+	 *                   a temporary file
+	 * @param processors permits for the phases that need a processor
+	 * @return the paths found in the file
+	 * @throws IOException          if the file cannot be read or the paths cannot
+	 *                              be written
+	 * @throws InterruptedException if the thread is interrupted while waiting for
+	 *                              a processor
+	 */
+	private static Result hike(Path file, Path outDir, Semaphore processors) throws IOException, InterruptedException {
+		String tag = outDir == null ? file.getFileName() + ": " : "";
+		Path target = outDir == null ? Files.createTempFile("mountain", ".paths")
+				: outDir.resolve(file.getFileName() + ".out");
+		long[] count = new long[1];
+		boolean done = false;
+		try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+			processors.acquire();
+			try {
+				List<RestStop> stops = new RestStopParser().parse(file);
+				BSTMountain<RestStop> mountain = new BSTMountain<>();
+				for (RestStop stop : stops) {
+					mountain.add(stop);
+				}
+				mountain.traverse(new Hiker(), path -> {
+					try {
+						out.write(tag);
+						for (int i = 0; i < path.size(); i++) {
+							out.write(path.get(i).getLabel());
+							out.write(' ');
+						}
+						out.write('\n');
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					count[0]++;
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			} finally {
+				processors.release();
 			}
+			done = true;
+		} finally {
+			// a file that failed leaves no partial paths behind
+			if (!done) {
+				Files.deleteIfExists(target);
+			}
+		}
+		return new Result(outDir == null ? target : null, count[0]);
+	}
+
+	/**
+	 * Paths found in one file of a batch.
+	 */
+	private static class Result {
+
+		final Path paths; // temporary file of the paths to display, or null
+		final long count;
+
+		/**
+		 * Creates a new result.
+		 *
+		 * @param paths temporary file holding the paths, one per line and
+		 *              prefixed with the name of the input file, or null if they
+		 *              were written to the output directory
+		 * @param count number of paths
+		 */
+		Result(Path paths, long count) {
+			this.paths = paths;
+			this.count = count;
+		}
+
+	}
 
+	/**
+	 * Where and in which format the paths are written, as requested by the
+	 * --format and --output options.
+	 */
+	private static class Output {
+
+		private PathWriter.Format format = PathWriter.Format.PLAIN;
+		private Path file; // null for the console
+
+		/**
+		 * Reads the options that follow the input on the command line.
+		 *
+		 * @param args command line arguments
+		 * @throws IllegalArgumentException if an option is not recognized
+		 */
+		Output(String[] args) {
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].startsWith("--format=")) {
+					format = PathWriter.Format.forName(args[i].substring("--format=".length()));
+				} else if (args[i].startsWith("--output=")) {
+					file = Paths.get(args[i].substring("--output=".length()));
+				} else {
+					throw new IllegalArgumentException("unknown option " + args[i]);
+				}
+			}
 		}
 
-		newMountain.traverse(new Hiker());
+		/**
+		 * Sends a hiker down the mountain and writes the paths it can take.
+		 *
+		 * @param mountain mountain to traverse
+		 */
+		void write(BSTMountain<RestStop> mountain) {
+			try {
+				PathWriter writer = file == null ? PathWriter.toStandardOutput(format)
+						: PathWriter.toFile(file, format);
+				try {
+					mountain.traverse(new Hiker(), writer);
+				} finally {
+					// the standard output stays open for the rest of the program
+					if (file == null) {
+						writer.flush();
+					} else {
+						writer.close();
+					}
+				}
+			} catch (IOException | UncheckedIOException e) {
+				System.err.println("Error: the paths cannot be written: " + e.getMessage() + "\n");
+				System.exit(1);
+			}
+		}
 
 	}
 
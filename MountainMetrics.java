@@ -0,0 +1,577 @@
+package project5;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class collects counters for the three phases of a hike: parsing the
+ * input file, building the BSTMountain, and traversing it. The counters are
+ * safe to update from several threads at once, and a copy of them can be taken
+ * at any time with snapshot.
+ *
+ * Each phase also emits a Java Flight Recorder event, so the same numbers show
+ * up in a recording next to the time spent in the phase.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class MountainMetrics {
+
+	// parse
+	private final LongAdder lines = new LongAdder();
+	private final LongAdder blankLines = new LongAdder();
+	private final LongAdder malformedLines = new LongAdder();
+	private final LongAdder truncatedLines = new LongAdder();
+	private final LongAdder stopsParsed = new LongAdder();
+
+	// build
+	private final LongAdder inserts = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder rotationsLL = new LongAdder();
+	private final LongAdder rotationsLR = new LongAdder();
+	private final LongAdder rotationsRR = new LongAdder();
+	private final LongAdder rotationsRL = new LongAdder();
+	private volatile int height = -1;
+
+	// traverse
+	private final LongAdder traversals = new LongAdder();
+	private final LongAdder nodesVisited = new LongAdder();
+	private final LongAdder prunedByFood = new LongAdder();
+	private final LongAdder prunedByAxe = new LongAdder();
+	private final LongAdder prunedByRaft = new LongAdder();
+	private final LongAdder prunedByBounds = new LongAdder();
+	private final LongAdder cliffs = new LongAdder();
+	private final LongAdder bottoms = new LongAdder();
+
+	/**
+	 * Counts of a single parse. The parser fills one of these per chunk without
+	 * synchronization and adds it to the metrics when the chunk is done.
+	 */
+	static final class Parse {
+		long lines;
+		long blankLines;
+		long malformedLines;
+		long truncatedLines;
+		long stops;
+
+		/**
+		 * Adds the counts of another parse to this one.
+		 *
+		 * @param other counts to add
+		 */
+		void add(Parse other) {
+			lines += other.lines;
+			blankLines += other.blankLines;
+			malformedLines += other.malformedLines;
+			truncatedLines += other.truncatedLines;
+			stops += other.stops;
+		}
+	}
+
+	/**
+	 * Counts of a single traversal. The traversal fills one of these without
+	 * synchronization and adds it to the metrics when it is done.
+	 */
+	static final class Traversal {
+		long nodesVisited;
+		long prunedByFood;
+		long prunedByAxe;
+		long prunedByRaft;
+		long prunedByBounds;
+		long cliffs;
+		long bottoms;
+
+		/**
+		 * Adds the counts of another traversal to this one.
+		 *
+		 * @param other counts to add
+		 */
+		void add(Traversal other) {
+			nodesVisited += other.nodesVisited;
+			prunedByFood += other.prunedByFood;
+			prunedByAxe += other.prunedByAxe;
+			prunedByRaft += other.prunedByRaft;
+			prunedByBounds += other.prunedByBounds;
+			cliffs += other.cliffs;
+			bottoms += other.bottoms;
+		}
+	}
+
+	/**
+	 * Adds the counts of a parse and emits its event.
+	 *
+	 * @param counts counts of the parse
+	 * @param event  event of the parse, begun when the parse started
+	 * @param file   name of the parsed file
+	 * @param bytes  size of the parsed file
+	 */
+	void record(Parse counts, ParseEvent event, String file, long bytes) {
+		lines.add(counts.lines);
+		blankLines.add(counts.blankLines);
+		malformedLines.add(counts.malformedLines);
+		truncatedLines.add(counts.truncatedLines);
+		stopsParsed.add(counts.stops);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.file = file;
+			event.bytes = bytes;
+			event.lines = counts.lines;
+			event.blankLines = counts.blankLines;
+			event.malformedLines = counts.malformedLines;
+			event.truncatedLines = counts.truncatedLines;
+			event.stops = counts.stops;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Counts elements added to the tree.
+	 *
+	 * @param count number of elements added
+	 */
+	void recordInserts(long count) {
+		inserts.add(count);
+	}
+
+	/**
+	 * Counts elements that were not added because the tree already contained
+	 * them.
+	 *
+	 * @param count number of elements not added
+	 */
+	void recordDuplicates(long count) {
+		duplicates.add(count);
+	}
+
+	/**
+	 * Counts a LL rotation.
+	 */
+	void recordLL() {
+		rotationsLL.increment();
+	}
+
+	/**
+	 * Counts a LR rotation.
+	 */
+	void recordLR() {
+		rotationsLR.increment();
+	}
+
+	/**
+	 * Counts a RR rotation.
+	 */
+	void recordRR() {
+		rotationsRR.increment();
+	}
+
+	/**
+	 * Counts a RL rotation.
+	 */
+	void recordRL() {
+		rotationsRL.increment();
+	}
+
+	/**
+	 * Records the current height of the tree.
+	 *
+	 * @param height height of the tree, -1 if it is empty
+	 */
+	void recordHeight(int height) {
+		this.height = height;
+	}
+
+	/**
+	 * Emits the event of a build. The counts of the event are the difference
+	 * between two snapshots taken before and after the build.
+	 *
+	 * @param event  event of the build, begun when the build started
+	 * @param before snapshot taken before the build
+	 */
+	public void record(BuildEvent event, Snapshot before) {
+		event.end();
+		if (event.shouldCommit()) {
+			Snapshot after = snapshot();
+			event.inserts = after.getInserts() - before.getInserts();
+			event.duplicates = after.getDuplicates() - before.getDuplicates();
+			event.rotations = after.getRotations() - before.getRotations();
+			event.height = after.getHeight();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Adds the counts of a traversal and emits its event.
+	 *
+	 * @param counts counts of the traversal
+	 * @param event  event of the traversal, begun when the traversal started
+	 */
+	void record(Traversal counts, TraverseEvent event) {
+		traversals.increment();
+		nodesVisited.add(counts.nodesVisited);
+		prunedByFood.add(counts.prunedByFood);
+		prunedByAxe.add(counts.prunedByAxe);
+		prunedByRaft.add(counts.prunedByRaft);
+		prunedByBounds.add(counts.prunedByBounds);
+		cliffs.add(counts.cliffs);
+		bottoms.add(counts.bottoms);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.nodesVisited = counts.nodesVisited;
+			event.prunedByFood = counts.prunedByFood;
+			event.prunedByAxe = counts.prunedByAxe;
+			event.prunedByRaft = counts.prunedByRaft;
+			event.prunedByBounds = counts.prunedByBounds;
+			event.cliffs = counts.cliffs;
+			event.bottoms = counts.bottoms;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns a copy of the current values of all counters.
+	 *
+	 * @return copy of the counters
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Copy of the counters of a MountainMetrics object at one point in time.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	public static final class Snapshot {
+
+		private final long lines;
+		private final long blankLines;
+		private final long malformedLines;
+		private final long truncatedLines;
+		private final long stopsParsed;
+		private final long inserts;
+		private final long duplicates;
+		private final long rotationsLL;
+		private final long rotationsLR;
+		private final long rotationsRR;
+		private final long rotationsRL;
+		private final int height;
+		private final long traversals;
+		private final long nodesVisited;
+		private final long prunedByFood;
+		private final long prunedByAxe;
+		private final long prunedByRaft;
+		private final long prunedByBounds;
+		private final long cliffs;
+		private final long bottoms;
+
+		/**
+		 * Copies the counters of the specified metrics.
+		 *
+		 * @param m metrics to copy
+		 */
+		private Snapshot(MountainMetrics m) {
+			lines = m.lines.sum();
+			blankLines = m.blankLines.sum();
+			malformedLines = m.malformedLines.sum();
+			truncatedLines = m.truncatedLines.sum();
+			stopsParsed = m.stopsParsed.sum();
+			inserts = m.inserts.sum();
+			duplicates = m.duplicates.sum();
+			rotationsLL = m.rotationsLL.sum();
+			rotationsLR = m.rotationsLR.sum();
+			rotationsRR = m.rotationsRR.sum();
+			rotationsRL = m.rotationsRL.sum();
+			height = m.height;
+			traversals = m.traversals.sum();
+			nodesVisited = m.nodesVisited.sum();
+			prunedByFood = m.prunedByFood.sum();
+			prunedByAxe = m.prunedByAxe.sum();
+			prunedByRaft = m.prunedByRaft.sum();
+			prunedByBounds = m.prunedByBounds.sum();
+			cliffs = m.cliffs.sum();
+			bottoms = m.bottoms.sum();
+		}
+
+		/**
+		 * Returns the number of lines read
+		 *
+		 * @return the number of lines read
+		 */
+		public long getLines() {
+			return lines;
+		}
+
+		/**
+		 * Returns the number of lines without any words
+		 *
+		 * @return the number of lines without any words
+		 */
+		public long getBlankLines() {
+			return blankLines;
+		}
+
+		/**
+		 * Returns the number of lines skipped because their label was empty
+		 *
+		 * @return the number of lines skipped because their label was empty
+		 */
+		public long getMalformedLines() {
+			return malformedLines;
+		}
+
+		/**
+		 * Returns the number of lines cut short by a "fallen" at their end
+		 *
+		 * @return the number of lines cut short by a "fallen" at their end
+		 */
+		public long getTruncatedLines() {
+			return truncatedLines;
+		}
+
+		/**
+		 * Returns the number of rest stops read
+		 *
+		 * @return the number of rest stops read
+		 */
+		public long getStopsParsed() {
+			return stopsParsed;
+		}
+
+		/**
+		 * Returns the number of elements added to the tree
+		 *
+		 * @return the number of elements added to the tree
+		 */
+		public long getInserts() {
+			return inserts;
+		}
+
+		/**
+		 * Returns the number of elements not added because they were duplicates
+		 *
+		 * @return the number of elements not added because they were duplicates
+		 */
+		public long getDuplicates() {
+			return duplicates;
+		}
+
+		/**
+		 * Returns the number of LL rotations
+		 *
+		 * @return the number of LL rotations
+		 */
+		public long getRotationsLL() {
+			return rotationsLL;
+		}
+
+		/**
+		 * Returns the number of LR rotations
+		 *
+		 * @return the number of LR rotations
+		 */
+		public long getRotationsLR() {
+			return rotationsLR;
+		}
+
+		/**
+		 * Returns the number of RR rotations
+		 *
+		 * @return the number of RR rotations
+		 */
+		public long getRotationsRR() {
+			return rotationsRR;
+		}
+
+		/**
+		 * Returns the number of RL rotations
+		 *
+		 * @return the number of RL rotations
+		 */
+		public long getRotationsRL() {
+			return rotationsRL;
+		}
+
+		/**
+		 * Returns the number of rotations of all four kinds
+		 *
+		 * @return the number of rotations of all four kinds
+		 */
+		public long getRotations() {
+			return rotationsLL + rotationsLR + rotationsRR + rotationsRL;
+		}
+
+		/**
+		 * Returns the height of the tree after the last change, -1 if empty
+		 *
+		 * @return the height of the tree after the last change, -1 if empty
+		 */
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * Returns the number of traversals
+		 *
+		 * @return the number of traversals
+		 */
+		public long getTraversals() {
+			return traversals;
+		}
+
+		/**
+		 * Returns the number of nodes the hiker moved onto
+		 *
+		 * @return the number of nodes the hiker moved onto
+		 */
+		public long getNodesVisited() {
+			return nodesVisited;
+		}
+
+		/**
+		 * Returns the number of times the hiker stopped because it had no food
+		 *
+		 * @return the number of times the hiker stopped because it had no food
+		 */
+		public long getPrunedByFood() {
+			return prunedByFood;
+		}
+
+		/**
+		 * Returns the number of times the hiker was stopped by a fallen tree
+		 *
+		 * @return the number of times the hiker was stopped by a fallen tree
+		 */
+		public long getPrunedByAxe() {
+			return prunedByAxe;
+		}
+
+		/**
+		 * Returns the number of times the hiker was stopped by a river
+		 *
+		 * @return the number of times the hiker was stopped by a river
+		 */
+		public long getPrunedByRaft() {
+			return prunedByRaft;
+		}
+
+		/**
+		 * Returns the number of subtrees skipped because they could not lead down
+		 *
+		 * @return the number of subtrees skipped because they could not lead down
+		 */
+		public long getPrunedByBounds() {
+			return prunedByBounds;
+		}
+
+		/**
+		 * Returns the number of cliffs reached
+		 *
+		 * @return the number of cliffs reached
+		 */
+		public long getCliffs() {
+			return cliffs;
+		}
+
+		/**
+		 * Returns the number of times the bottom of the mountain was reached
+		 *
+		 * @return the number of times the bottom of the mountain was reached
+		 */
+		public long getBottoms() {
+			return bottoms;
+		}
+
+		/**
+		 * Returns the string representation of this snapshot, one counter per line.
+		 *
+		 * @return the string representation of this snapshot
+		 */
+		@Override
+		public String toString() {
+			return "lines: " + lines + "\nblank lines: " + blankLines + "\nmalformed lines: " + malformedLines
+					+ "\ntruncated lines: " + truncatedLines + "\nstops parsed: " + stopsParsed + "\ninserts: "
+					+ inserts + "\nduplicates: " + duplicates + "\nrotations LL/LR/RR/RL: " + rotationsLL + "/"
+					+ rotationsLR + "/" + rotationsRR + "/" + rotationsRL + "\nheight: " + height
+					+ "\ntraversals: " + traversals + "\nnodes visited: " + nodesVisited + "\npruned by food: "
+					+ prunedByFood + "\npruned by axe: " + prunedByAxe + "\npruned by raft: " + prunedByRaft
+					+ "\npruned by bounds: " + prunedByBounds + "\ncliffs: " + cliffs + "\nbottoms: " + bottoms
+					+ "\n";
+		}
+	}
+
+	/**
+	 * Flight Recorder event for parsing an input file.
+	 */
+	@Name("project5.Parse")
+	@Label("Mountain Parse")
+	@Category("Mountain Hike")
+	@Description("Reading the rest stops of a mountain from a file")
+	public static class ParseEvent extends Event {
+		@Label("File")
+		String file;
+		@Label("Bytes")
+		long bytes;
+		@Label("Lines")
+		long lines;
+		@Label("Blank Lines")
+		long blankLines;
+		@Label("Malformed Lines")
+		long malformedLines;
+		@Label("Truncated Lines")
+		long truncatedLines;
+		@Label("Rest Stops")
+		long stops;
+	}
+
+	/**
+	 * Flight Recorder event for building a tree.
+	 */
+	@Name("project5.Build")
+	@Label("Mountain Build")
+	@Category("Mountain Hike")
+	@Description("Adding rest stops to a BSTMountain")
+	public static class BuildEvent extends Event {
+		@Label("Inserts")
+		long inserts;
+		@Label("Duplicates")
+		long duplicates;
+		@Label("Rotations")
+		long rotations;
+		@Label("Height")
+		int height;
+	}
+
+	/**
+	 * Flight Recorder event for a traversal.
+	 */
+	@Name("project5.Traverse")
+	@Label("Mountain Traverse")
+	@Category("Mountain Hike")
+	@Description("A hiker exploring the paths down a BSTMountain")
+	public static class TraverseEvent extends Event {
+		@Label("Nodes Visited")
+		long nodesVisited;
+		@Label("Pruned By Food")
+		long prunedByFood;
+		@Label("Pruned By Axe")
+		long prunedByAxe;
+		@Label("Pruned By Raft")
+		long prunedByRaft;
+		@Label("Pruned By Bounds")
+		long prunedByBounds;
+		@Label("Cliffs")
+		long cliffs;
+		@Label("Bottoms")
+		long bottoms;
+	}
+
+}
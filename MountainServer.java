@@ -0,0 +1,398 @@
+package project5;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class is a program that loads one or more mountains once and then
+ * answers queries about them over a local socket, so that each query does not
+ * pay for starting a JVM and building the mountain again. It must be run with a
+ * port number followed by the names of the input files. Each mountain is named
+ * after its file, without the directory.
+ *
+ * Each connection is handled on its own virtual thread and may send any number
+ * of requests, one per line:
+ *
+ * TRAVERSE mountain food raft axe
+ *            displays the paths to the bottom of the mountain, one per line, in
+ *            the same format as MountainHike, followed by END and their number
+ * COUNT mountain food raft axe
+ *            replies OK and the number of paths to the bottom of the mountain
+ * ADD mountain line
+ *            adds the rest stop described by the rest of the line, written as
+ *            in an input file, and replies OK added or OK duplicate
+ * STATS      displays the number of requests of each kind and their latency
+ *            percentiles in microseconds, followed by END
+ * QUIT       closes the connection
+ *
+ * A request that cannot be answered gets a reply that starts with ERROR.
+ * Traversals and counts of the same mountain run at the same time, while an
+ * add waits for them to finish and holds them off until it is done.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class MountainServer {
+
+	private final Map<String, Mountain> mountains = new LinkedHashMap<>();
+	private final Map<String, LatencyRecorder> latencies = new LinkedHashMap<>();
+
+	/**
+	 * Creates a new server without any mountains.
+	 */
+	public MountainServer() {
+		for (String command : new String[] { "TRAVERSE", "COUNT", "ADD", "STATS" }) {
+			latencies.put(command, new LatencyRecorder(4096));
+		}
+	}
+
+	public static void main(String[] args) {
+
+		if (args.length < 2) {
+			System.err.println("Usage Error: the program expects a port number and file names as arguments.\n");
+			System.exit(1);
+		}
+
+		int port = 0;
+		try {
+			port = Integer.parseInt(args[0]);
+		} catch (NumberFormatException e) {
+			System.err.println("Usage Error: invalid port number " + args[0] + "\n");
+			System.exit(1);
+		}
+
+		MountainServer server = new MountainServer();
+		for (int i = 1; i < args.length; i++) {
+			File inputFile = new File(args[i]);
+			try {
+				server.load(inputFile.getName(), inputFile);
+			} catch (IOException e) {
+				System.err.println("Error: the file " + inputFile.getAbsolutePath()
+						+ " cannot be opened for reading.\n");
+				System.exit(1);
+			}
+		}
+
+		try {
+			server.serve(port);
+		} catch (IOException e) {
+			System.err.println("Error: the server cannot listen on port " + port + ": " + e.getMessage() + "\n");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads a mountain from an input file. The rest stops are added in the order
+	 * of the file, as MountainHike adds them, so the mountain has the same shape.
+	 *
+	 * @param name      name under which the mountain is queried
+	 * @param inputFile input file to read
+	 * @throws IOException if the file cannot be read
+	 */
+	public void load(String name, File inputFile) throws IOException {
+		List<RestStop> stops = new RestStopParser().parse(inputFile.toPath());
+		BSTMountain<RestStop> mountain = new BSTMountain<>();
+		for (RestStop stop : stops) {
+			mountain.add(stop);
+		}
+		mountains.put(name, new Mountain(mountain));
+	}
+
+	/**
+	 * Accepts connections on the loopback address until the program is stopped.
+	 *
+	 * @param port port to listen on, or 0 for any free port
+	 * @throws IOException if the port cannot be listened on
+	 */
+	public void serve(int port) throws IOException {
+		try (ServerSocket listener = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+				ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			System.err.println("Listening on " + listener.getLocalSocketAddress());
+			while (true) {
+				Socket socket = listener.accept();
+				executor.submit(() -> handle(socket));
+			}
+		}
+	}
+
+	/**
+	 * Answers the requests sent over one connection until the client closes it
+	 * or sends QUIT.
+	 *
+	 * @param socket connection to the client
+	 */
+	private void handle(Socket socket) {
+		try (socket;
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+						1 << 16)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().equals("QUIT")) {
+					break;
+				}
+				request(line, out);
+				out.flush();
+			}
+		} catch (IOException e) {
+			// the client went away; there is nobody left to tell
+		}
+	}
+
+	/**
+	 * Answers a single request.
+	 *
+	 * @param line request, without its line break
+	 * @param out  destination of the reply
+	 * @throws IOException if the reply cannot be written
+	 */
+	void request(String line, Writer out) throws IOException {
+		long start = System.nanoTime();
+		String[] words = line.trim().split(" +", 3);
+		String command = words[0];
+		try {
+			switch (command) {
+			case "TRAVERSE":
+				traverse(mountain(words), hiker(words), out);
+				break;
+			case "COUNT":
+				out.write("OK " + count(mountain(words), hiker(words)) + "\n");
+				break;
+			case "ADD":
+				out.write(add(mountain(words), words.length > 2 ? words[2] : "") ? "OK added\n" : "OK duplicate\n");
+				break;
+			case "STATS":
+				stats(out);
+				break;
+			default:
+				out.write("ERROR unknown request: " + command + "\n");
+				return;
+			}
+		} catch (IllegalArgumentException e) {
+			out.write("ERROR " + e.getMessage() + "\n");
+			return;
+		}
+		latencies.get(command).record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the mountain named by a request.
+	 *
+	 * @param words words of the request
+	 * @return the mountain
+	 * @throws IllegalArgumentException if the request names no known mountain
+	 */
+	private Mountain mountain(String[] words) {
+		if (words.length < 2) {
+			throw new IllegalArgumentException("missing mountain name");
+		}
+		Mountain mountain = mountains.get(words[1]);
+		if (mountain == null) {
+			throw new IllegalArgumentException("unknown mountain: " + words[1]);
+		}
+		return mountain;
+	}
+
+	/**
+	 * Creates the hiker described by a request.
+	 *
+	 * @param words words of the request
+	 * @return a hiker with the requested food, rafts, and axes
+	 * @throws IllegalArgumentException if the supplies are missing or are not
+	 *                                  numbers
+	 */
+	private static Hiker hiker(String[] words) {
+		String[] kit = words.length > 2 ? words[2].split(" +") : new String[0];
+		if (kit.length != 3) {
+			throw new IllegalArgumentException("expected food, raft, and axe");
+		}
+		try {
+			return new Hiker(Integer.parseInt(kit[0]), Integer.parseInt(kit[1]), Integer.parseInt(kit[2]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid number in " + words[2]);
+		}
+	}
+
+	/**
+	 * Writes the paths to the bottom of a mountain.
+	 *
+	 * @param mountain mountain to traverse
+	 * @param h        Hiker object that traverses down the mountain
+	 * @param out      destination of the paths
+	 * @throws IOException if the paths cannot be written
+	 */
+	private static void traverse(Mountain mountain, Hiker h, Writer out) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		long[] count = new long[1];
+		mountain.lock.readLock().lock();
+		try {
+			mountain.tree.traverse(h, path -> {
+				for (int i = 0; i < path.size(); i++) {
+					sb.append(path.get(i).getLabel()).append(' ');
+				}
+				sb.append('\n');
+				count[0]++;
+			});
+		} finally {
+			mountain.lock.readLock().unlock();
+		}
+		out.write(sb.toString());
+		out.write("END " + count[0] + "\n");
+	}
+
+	/**
+	 * Counts the paths to the bottom of a mountain.
+	 *
+	 * @param mountain mountain to traverse
+	 * @param h        Hiker object that traverses down the mountain
+	 * @return the number of paths
+	 */
+	private static long count(Mountain mountain, Hiker h) {
+		mountain.lock.readLock().lock();
+		try {
+			return mountain.tree.countPaths(h);
+		} finally {
+			mountain.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a rest stop to a mountain.
+	 *
+	 * @param mountain mountain to add to
+	 * @param line     rest stop written as in an input file
+	 * @return true if the rest stop was added, false if it was a duplicate
+	 * @throws IllegalArgumentException if the line does not describe a rest stop
+	 */
+	private static boolean add(Mountain mountain, String line) {
+		RestStop stop = RestStopParser.parseLine(line);
+		if (stop == null) {
+			throw new IllegalArgumentException("invalid rest stop: " + line);
+		}
+		mountain.lock.writeLock().lock();
+		try {
+			return mountain.tree.add(stop);
+		} finally {
+			mountain.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the number of requests of each kind and their latency percentiles.
+	 *
+	 * @param out destination of the statistics
+	 * @throws IOException if the statistics cannot be written
+	 */
+	private void stats(Writer out) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, LatencyRecorder> entry : latencies.entrySet()) {
+			sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+		}
+		sb.append("END\n");
+		out.write(sb.toString());
+	}
+
+	/**
+	 * Mountain loaded by the server, with the lock that keeps adds apart from
+	 * traversals.
+	 */
+	private static class Mountain {
+
+		final BSTMountain<RestStop> tree;
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		/**
+		 * Creates a new loaded mountain.
+		 *
+		 * @param tree the mountain
+		 */
+		Mountain(BSTMountain<RestStop> tree) {
+			this.tree = tree;
+		}
+
+	}
+
+	/**
+	 * Keeps the most recent latencies of one kind of request in a ring, from
+	 * which percentiles are computed on demand.
+	 */
+	private static class LatencyRecorder {
+
+		private final long[] samples;
+		private long count;
+
+		/**
+		 * Creates a new recorder.
+		 *
+		 * @param capacity number of recent latencies kept
+		 */
+		LatencyRecorder(int capacity) {
+			samples = new long[capacity];
+		}
+
+		/**
+		 * Records the latency of a request.
+		 *
+		 * @param nanos latency in nanoseconds
+		 */
+		synchronized void record(long nanos) {
+			samples[(int) (count % samples.length)] = nanos;
+			count++;
+		}
+
+		/**
+		 * Returns the number of requests and the percentiles of the kept
+		 * latencies.
+		 *
+		 * @return string listing the count and the p50, p90, p99, and maximum
+		 *         latencies in microseconds
+		 */
+		@Override
+		public String toString() {
+			long[] sorted;
+			long total;
+			synchronized (this) {
+				total = count;
+				sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+			}
+			if (sorted.length == 0) {
+				return "count=0";
+			}
+			Arrays.sort(sorted);
+			return "count=" + total + " p50=" + percentile(sorted, 50) + " p90=" + percentile(sorted, 90) + " p99="
+					+ percentile(sorted, 99) + " max=" + sorted[sorted.length - 1] / 1000;
+		}
+
+		/**
+		 * Returns a percentile of sorted latencies.
+		 *
+		 * @param sorted  latencies in nanoseconds, in increasing order
+		 * @param percent percentile to return
+		 * @return the percentile in microseconds
+		 */
+		private static long percentile(long[] sorted, int percent) {
+			int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+			return sorted[Math.max(index, 0)] / 1000;
+		}
+
+	}
+
+}
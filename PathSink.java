@@ -0,0 +1,26 @@
+package project5;
+
+import java.util.List;
+
+/**
+ * This interface represents a consumer of the paths that a Hiker finds down a
+ * BSTMountain. It allows a caller to process the paths as they are found
+ * instead of having them displayed to the console.
+ * 
+ * @author Joshua Forlenza
+ *
+ */
+
+@FunctionalInterface
+public interface PathSink {
+
+	/**
+	 * Receives a path that reaches the bottom of the mountain. The list is owned by
+	 * the traversal and changes once this method returns, so it must be copied if
+	 * it needs to be kept.
+	 * 
+	 * @param path rest stops on the path, starting at the top of the mountain
+	 */
+	void accept(List<RestStop> path);
+
+}
@@ -0,0 +1,294 @@
+package project5;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * This class writes the paths found by a traversal to a file or to the
+ * console. It can be passed to BSTMountain.traverse as the sink of the paths.
+ * The label of each rest stop is encoded to UTF-8 only the first time the rest
+ * stop is written, and the writer keeps the bytes for the next paths through
+ * it, so no label is encoded twice. The labels should therefore not be changed
+ * while the writer is in use. The bytes are collected in a large direct buffer
+ * that is only written to the channel when it is full or when the writer is
+ * flushed.
+ *
+ * Each path is written on its own line in one of three formats:
+ *
+ * PLAIN   the labels each followed by a space, as displayed by traverse
+ * CSV     the labels separated by commas; labels containing commas or quotes
+ *         are quoted
+ * JSONL   a JSON array of the labels as strings
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class PathWriter implements PathSink, Closeable {
+
+	/**
+	 * Formats in which the paths can be written.
+	 */
+	public enum Format {
+		PLAIN, CSV, JSONL;
+
+		/**
+		 * Returns the format with the specified name, ignoring case.
+		 *
+		 * @param name name of the format
+		 * @return the format
+		 * @throws IllegalArgumentException if there is no format with that name
+		 */
+		public static Format forName(String name) {
+			for (Format format : values()) {
+				if (format.name().equalsIgnoreCase(name)) {
+					return format;
+				}
+			}
+			throw new IllegalArgumentException("unknown format: " + name);
+		}
+	}
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+	private final WritableByteChannel channel;
+	private final Format format;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	// UTF-8 bytes of the labels of the rest stops written so far
+	private final IdentityHashMap<RestStop, byte[]> labels = new IdentityHashMap<>();
+
+	/**
+	 * Creates a new writer that writes to the specified channel.
+	 *
+	 * @param channel channel to write to
+	 * @param format  format of the paths
+	 */
+	public PathWriter(WritableByteChannel channel, Format format) {
+		this.channel = channel;
+		this.format = format;
+	}
+
+	/**
+	 * Creates a new writer that writes to the specified file, replacing it if it
+	 * already exists.
+	 *
+	 * @param file   file to write to
+	 * @param format format of the paths
+	 * @return the writer
+	 * @throws IOException if the file cannot be opened for writing
+	 */
+	public static PathWriter toFile(Path file, Format format) throws IOException {
+		return new PathWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING), format);
+	}
+
+	/**
+	 * Creates a new writer that writes to the standard output, bypassing
+	 * System.out. Nothing else should be written to System.out while the writer
+	 * is in use, since the two are not buffered together.
+	 *
+	 * @param format format of the paths
+	 * @return the writer
+	 */
+	public static PathWriter toStandardOutput(Format format) {
+		return new PathWriter(new FileOutputStream(FileDescriptor.out).getChannel(), format);
+	}
+
+	/**
+	 * Writes a path on its own line.
+	 *
+	 * @param path rest stops on the path, starting at the top of the mountain
+	 * @throws UncheckedIOException if the path cannot be written
+	 */
+	@Override
+	public void accept(List<RestStop> path) {
+		try {
+			switch (format) {
+			case PLAIN:
+				for (int i = 0; i < path.size(); i++) {
+					write(labelOf(path.get(i)));
+					write((byte) ' ');
+				}
+				break;
+			case CSV:
+				for (int i = 0; i < path.size(); i++) {
+					if (i > 0) {
+						write((byte) ',');
+					}
+					writeCsv(labelOf(path.get(i)));
+				}
+				break;
+			case JSONL:
+				write((byte) '[');
+				for (int i = 0; i < path.size(); i++) {
+					if (i > 0) {
+						write((byte) ',');
+					}
+					writeJson(labelOf(path.get(i)));
+				}
+				write((byte) ']');
+				break;
+			}
+			write((byte) '\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the label of a rest stop encoded in UTF-8, encoding it only the
+	 * first time the rest stop is written.
+	 *
+	 * @param stop rest stop on a path
+	 * @return the bytes of its label, which must not be modified
+	 */
+	private byte[] labelOf(RestStop stop) {
+		byte[] bytes = labels.get(stop);
+		if (bytes == null) {
+			bytes = stop.getLabel().getBytes(StandardCharsets.UTF_8);
+			labels.put(stop, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes a label as a CSV field, quoted if it contains a comma, a quote, or a
+	 * line break.
+	 *
+	 * @param label bytes of the label
+	 * @throws IOException if the buffer cannot be emptied
+	 */
+	private void writeCsv(byte[] label) throws IOException {
+		boolean quote = false;
+		for (byte b : label) {
+			if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+				quote = true;
+				break;
+			}
+		}
+		if (!quote) {
+			write(label);
+			return;
+		}
+		write((byte) '"');
+		for (byte b : label) {
+			if (b == '"') {
+				write((byte) '"');
+			}
+			write(b);
+		}
+		write((byte) '"');
+	}
+
+	/**
+	 * Writes a label as a JSON string. Quotes, backslashes, and control
+	 * characters are escaped; all other bytes, including the bytes of non-ASCII
+	 * characters, are written as they are.
+	 *
+	 * @param label bytes of the label
+	 * @throws IOException if the buffer cannot be emptied
+	 */
+	private void writeJson(byte[] label) throws IOException {
+		write((byte) '"');
+		for (byte b : label) {
+			if (b == '"' || b == '\\') {
+				write((byte) '\\');
+				write(b);
+			} else if (b >= 0 && b < 0x20) {
+				write((byte) '\\');
+				write((byte) 'u');
+				write((byte) '0');
+				write((byte) '0');
+				write(HEX[b >> 4]);
+				write(HEX[b & 0xf]);
+			} else {
+				write(b);
+			}
+		}
+		write((byte) '"');
+	}
+
+	/**
+	 * Adds a byte to the buffer, emptying the buffer first if it is full.
+	 *
+	 * @param b byte to write
+	 * @throws IOException if the buffer cannot be emptied
+	 */
+	private void write(byte b) throws IOException {
+		if (!buffer.hasRemaining()) {
+			drain();
+		}
+		buffer.put(b);
+	}
+
+	/**
+	 * Adds bytes to the buffer, emptying the buffer first if they do not fit.
+	 * Bytes that would not fit in an empty buffer are written directly.
+	 *
+	 * @param bytes bytes to write
+	 * @throws IOException if the bytes cannot be written
+	 */
+	private void write(byte[] bytes) throws IOException {
+		if (bytes.length > buffer.remaining()) {
+			drain();
+			if (bytes.length > buffer.capacity()) {
+				ByteBuffer large = ByteBuffer.wrap(bytes);
+				while (large.hasRemaining()) {
+					channel.write(large);
+				}
+				return;
+			}
+		}
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Writes the contents of the buffer to the channel and empties it.
+	 *
+	 * @throws IOException if the contents cannot be written
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes everything written so far to the channel.
+	 *
+	 * @throws IOException if the paths cannot be written
+	 */
+	public void flush() throws IOException {
+		drain();
+	}
+
+	/**
+	 * Writes everything written so far to the channel and closes the channel.
+	 *
+	 * @throws IOException if the paths cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
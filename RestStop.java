@@ -1,5 +1,7 @@
 package project5;
 
+import java.util.Arrays;
+
 /**
  * This class represents a rest stop on a trail down a mountain. It stores the
  * label of the rest stop and a list of supplies and obstacles that a hiker can
@@ -11,12 +13,16 @@ package project5;
 
 public class RestStop implements Comparable<RestStop> {
 
-	private String label;
+	private String label; // null when the label is kept in a dictionary
+	private LabelDictionary dictionary;
+	private int ordinal;
 	private int food;
 	private int raft;
 	private int axe;
 	private int fallenTree;
 	private int river;
+	// mountains holding this rest stop, told when its supplies or obstacles change
+	private BSTMountain<?>[] owners;
 
 	/**
 	 * Creates a new RestStop object with the specified label
@@ -63,22 +69,109 @@ public class RestStop implements Comparable<RestStop> {
 		this.river = river;
 	}
 
+	/**
+	 * Creates a new RestStop object whose label is stored in the specified
+	 * dictionary, with the specified supplies and obstacles. Rest stops created
+	 * with the same dictionary are compared by their ordinals.
+	 * 
+	 * @param dictionary dictionary holding the label of the rest stop
+	 * @param ordinal    ordinal of the label in the dictionary
+	 * @param food       amount of food at the rest stop
+	 * @param raft       amount of rafts at the rest stop
+	 * @param axe        amount of axes at the rest stop
+	 * @param fallenTree amount of fallen trees at the rest stop
+	 * @param river      amount of rivers at the rest stop
+	 * @throws IllegalArgumentException if the dictionary has no label with that
+	 *                                  ordinal
+	 */
+	public RestStop(LabelDictionary dictionary, int ordinal, int food, int raft, int axe, int fallenTree,
+			int river) throws IllegalArgumentException {
+		if (ordinal < 0 || ordinal >= dictionary.size()) {
+			throw new IllegalArgumentException("Invalid label: ordinal " + ordinal + " is not in the dictionary");
+		}
+
+		this.dictionary = dictionary;
+		this.ordinal = ordinal;
+		this.food = food;
+		this.raft = raft;
+		this.axe = axe;
+		this.fallenTree = fallenTree;
+		this.river = river;
+	}
+
 	/**
 	 * Returns the label of the RestStop object
 	 * 
 	 * @return the label
 	 */
 	public String getLabel() {
+		if (label == null) {
+			return dictionary.label(ordinal);
+		}
 		return label;
 	}
 
 	/**
-	 * Sets the label of the RestStop object
+	 * Sets the label of the RestStop object. The label is no longer kept in a
+	 * dictionary after this call.
 	 * 
 	 * @param label the label to set
 	 */
 	public void setLabel(String label) {
 		this.label = label;
+		this.dictionary = null;
+	}
+
+	/**
+	 * Registers a mountain that holds this RestStop object, so that the mountain
+	 * is told whenever the supplies or obstacles are changed through the setters
+	 * and can bring the bounds it keeps for its rest stops up to date.
+	 * 
+	 * @param mountain mountain that holds this rest stop
+	 */
+	void addOwner(BSTMountain<?> mountain) {
+		if (owners == null) {
+			owners = new BSTMountain<?>[] { mountain };
+			return;
+		}
+		for (BSTMountain<?> owner : owners) {
+			if (owner == mountain) {
+				return;
+			}
+		}
+		owners = Arrays.copyOf(owners, owners.length + 1);
+		owners[owners.length - 1] = mountain;
+	}
+
+	/**
+	 * Sets all the supplies and obstacles of this RestStop object at once, so the
+	 * mountains holding it are only told about the change one time.
+	 * 
+	 * @param food       amount of food at the rest stop
+	 * @param raft       amount of rafts at the rest stop
+	 * @param axe        amount of axes at the rest stop
+	 * @param fallenTree amount of fallen trees at the rest stop
+	 * @param river      amount of rivers at the rest stop
+	 */
+	void set(int food, int raft, int axe, int fallenTree, int river) {
+		this.food = food;
+		this.raft = raft;
+		this.axe = axe;
+		this.fallenTree = fallenTree;
+		this.river = river;
+		changed();
+	}
+
+	/**
+	 * Tells the mountains holding this RestStop object that its supplies or
+	 * obstacles have changed.
+	 */
+	private void changed() {
+		if (owners != null) {
+			for (BSTMountain<?> owner : owners) {
+				owner.stopChanged(this);
+			}
+		}
 	}
 
 	/**
@@ -97,6 +190,7 @@ public class RestStop implements Comparable<RestStop> {
 	 */
 	public void setFood(int food) {
 		this.food = food;
+		changed();
 	}
 
 	/**
@@ -115,6 +209,7 @@ public class RestStop implements Comparable<RestStop> {
 	 */
 	public void setRaft(int raft) {
 		this.raft = raft;
+		changed();
 	}
 
 	/**
@@ -133,6 +228,7 @@ public class RestStop implements Comparable<RestStop> {
 	 */
 	public void setAxe(int axe) {
 		this.axe = axe;
+		changed();
 	}
 
 	/**
@@ -151,6 +247,7 @@ public class RestStop implements Comparable<RestStop> {
 	 */
 	public void setFallenTree(int fallenTree) {
 		this.fallenTree = fallenTree;
+		changed();
 	}
 
 	/**
@@ -169,11 +266,14 @@ public class RestStop implements Comparable<RestStop> {
 	 */
 	public void setRiver(int river) {
 		this.river = river;
+		changed();
 	}
 
 	/**
 	 * Compares this object with the specified object for order. Order is determined
-	 * by the alphanumeric comparison of the object's label.
+	 * by the alphanumeric comparison of the object's label. Since a dictionary
+	 * keeps its labels in that order, rest stops whose labels are kept in the same
+	 * dictionary are compared by their ordinals.
 	 * 
 	 * @param o the object to be compared.
 	 * @return a negative integer, zero, or a positive integer as this object is
@@ -181,10 +281,10 @@ public class RestStop implements Comparable<RestStop> {
 	 */
 	@Override
 	public int compareTo(RestStop o) {
-		if (this.label.compareTo(o.label) != 0) {
-			return this.label.compareTo(o.label);
+		if (this.label == null && o.label == null && this.dictionary == o.dictionary) {
+			return Integer.compare(this.ordinal, o.ordinal);
 		}
-		return 0;
+		return this.getLabel().compareTo(o.getLabel());
 	}
 
 	/**
@@ -194,7 +294,7 @@ public class RestStop implements Comparable<RestStop> {
 	 */
 	@Override
 	public String toString() {
-		String line1 = this.label;
+		String line1 = this.getLabel();
 		return line1;
 	}
 
@@ -0,0 +1,450 @@
+package project5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * This class reads the rest stops of a mountain from an input file. Each line
+ * of the file describes one rest stop: its label, followed by the supplies
+ * (food, raft, axe) found at it, followed by its obstacles (river, fallen
+ * tree). Words are separated by single spaces.
+ *
+ * The file is memory-mapped and split into chunks that end at line breaks, and
+ * the chunks are parsed in parallel directly from their bytes. The rest stops
+ * are returned in the order of the lines in the file, so adding them to a
+ * BSTMountain produces the same tree as adding them while reading the file one
+ * line at a time.
+ *
+ * Lines are interpreted exactly as they were by the original Scanner based
+ * loop in MountainHike: supplies listed after the first obstacle are ignored,
+ * "fallen" only counts when it is followed by "tree", a "fallen" at the end of
+ * a line ends the line, and lines with an empty label are skipped.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class RestStopParser {
+
+	/** default number of bytes in each chunk of the file */
+	public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+	private static final byte[] FOOD = "food".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] RAFT = "raft".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] AXE = "axe".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] RIVER = "river".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FALLEN = "fallen".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TREE = "tree".getBytes(StandardCharsets.US_ASCII);
+
+	private final int chunkSize;
+	private MountainMetrics metrics = new MountainMetrics();
+
+	/**
+	 * Creates a new parser that splits files into chunks of the default size.
+	 */
+	public RestStopParser() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new parser that splits files into chunks of the specified size.
+	 * A chunk is extended to the end of the line it stops in, so chunks can be
+	 * slightly larger than this.
+	 *
+	 * @param chunkSize number of bytes in each chunk of the file
+	 * @throws IllegalArgumentException if chunkSize is not positive
+	 */
+	public RestStopParser(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Invalid chunk size: chunk size must be positive");
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Reads the rest stops described by the specified file.
+	 *
+	 * @param file file to read
+	 * @return rest stops in the order in which they appear in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public List<RestStop> parse(Path file) throws IOException {
+		MountainMetrics.ParseEvent event = new MountainMetrics.ParseEvent();
+		event.begin();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			// split the file into chunks that end right after a line break
+			List<long[]> chunks = new ArrayList<>();
+			long start = 0;
+			while (start < size) {
+				long end = nextLineBreak(channel, Math.min(size, start + chunkSize), size);
+				chunks.add(new long[] { start, end });
+				start = end;
+			}
+
+			List<ByteBuffer> buffers = new ArrayList<>();
+			for (long[] chunk : chunks) {
+				buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]));
+			}
+
+			MountainMetrics.Parse[] counts = new MountainMetrics.Parse[buffers.size()];
+			List<List<RestStop>> parsed = IntStream.range(0, buffers.size()).parallel().mapToObj(i -> {
+				counts[i] = new MountainMetrics.Parse();
+				return parseChunk(buffers.get(i), counts[i]);
+			}).collect(Collectors.toList());
+
+			List<RestStop> stops = new ArrayList<>();
+			MountainMetrics.Parse total = new MountainMetrics.Parse();
+			for (int i = 0; i < parsed.size(); i++) {
+				stops.addAll(parsed.get(i));
+				total.add(counts[i]);
+			}
+			metrics.record(total, event, file.toString(), size);
+			return stops;
+		}
+	}
+
+	/**
+	 * Reads the rest stops described by the remaining bytes of the specified
+	 * buffer. The position of the buffer is not changed.
+	 *
+	 * @param buffer buffer holding the lines to read
+	 * @return rest stops in the order in which they appear in the buffer
+	 */
+	public List<RestStop> parse(ByteBuffer buffer) {
+		MountainMetrics.ParseEvent event = new MountainMetrics.ParseEvent();
+		event.begin();
+		MountainMetrics.Parse counts = new MountainMetrics.Parse();
+		List<RestStop> stops = parseChunk(buffer, counts);
+		metrics.record(counts, event, "buffer", buffer.remaining());
+		return stops;
+	}
+
+	/**
+	 * Reads the rest stops described by the lines of a stream, such as the
+	 * standard input, and hands them on in batches as they are read. Only the
+	 * bytes of the lines not yet read are kept, so a stream of any length can be
+	 * read, and a consumer that takes its time with a batch holds up the reading
+	 * of the next one.
+	 *
+	 * @param in        stream to read; it is not closed
+	 * @param batchSize number of rest stops in each batch; the last batch may be
+	 *                  smaller
+	 * @param batches   receives the batches of rest stops, in the order in which
+	 *                  they appear in the stream
+	 * @throws IOException if the stream cannot be read
+	 * @throws IllegalArgumentException if batchSize is not positive
+	 */
+	public void parse(InputStream in, int batchSize, Consumer<List<RestStop>> batches) throws IOException {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Invalid batch size: batch size must be positive");
+		}
+		MountainMetrics.ParseEvent event = new MountainMetrics.ParseEvent();
+		event.begin();
+		MountainMetrics.Parse counts = new MountainMetrics.Parse();
+		Tokens tokens = new Tokens();
+		List<RestStop> batch = new ArrayList<>(batchSize);
+
+		byte[] bytes = new byte[64 * 1024];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int length = 0; // bytes in the array
+		int lineStart = 0;
+		boolean afterReturn = false; // the last byte looked at was a \r
+		long total = 0;
+		int read;
+		while ((read = in.read(bytes, length, bytes.length - length)) >= 0) {
+			total += read;
+			int end = length + read;
+			for (int i = length; i < end; i++) {
+				byte b = bytes[i];
+				if (b == '\n' && afterReturn) {
+					// second half of a \r\n line break
+					lineStart = i + 1;
+				} else if (b == '\n' || b == '\r') {
+					parseLine(buffer, lineStart, i, tokens, batch, counts);
+					lineStart = i + 1;
+					if (batch.size() >= batchSize) {
+						batches.accept(batch);
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+				afterReturn = b == '\r';
+			}
+
+			// keep the unfinished line at the front of the array
+			length = end - lineStart;
+			System.arraycopy(bytes, lineStart, bytes, 0, length);
+			lineStart = 0;
+			if (length == bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+				buffer = ByteBuffer.wrap(bytes);
+			}
+		}
+		if (length > 0) {
+			parseLine(buffer, 0, length, tokens, batch, counts);
+		}
+		if (!batch.isEmpty()) {
+			batches.accept(batch);
+		}
+		metrics.record(counts, event, "stream", total);
+	}
+
+	/**
+	 * Returns the metrics that this parser records the lines it reads in.
+	 *
+	 * @return the metrics of this parser
+	 */
+	public MountainMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics that this parser records the lines it reads in.
+	 *
+	 * @param metrics the metrics to set
+	 */
+	public void setMetrics(MountainMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Reads the rest stops described by the remaining bytes of a buffer.
+	 *
+	 * @param buffer buffer holding the lines to read
+	 * @param counts counters of the lines read
+	 * @return rest stops in the order in which they appear in the buffer
+	 */
+	private static List<RestStop> parseChunk(ByteBuffer buffer, MountainMetrics.Parse counts) {
+		List<RestStop> stops = new ArrayList<>();
+		Tokens tokens = new Tokens();
+		int first = buffer.position();
+		int lineStart = first;
+		int limit = buffer.limit();
+		for (int i = first; i < limit; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n' && i == lineStart && i > first && buffer.get(i - 1) == '\r') {
+				// second half of a \r\n line break
+				lineStart = i + 1;
+			} else if (b == '\n' || b == '\r') {
+				parseLine(buffer, lineStart, i, tokens, stops, counts);
+				lineStart = i + 1;
+			}
+		}
+		if (lineStart < limit) {
+			parseLine(buffer, lineStart, limit, tokens, stops, counts);
+		}
+		return stops;
+	}
+
+	/**
+	 * Reads the rest stop described by a single line.
+	 *
+	 * @param line line to read, without its line break
+	 * @return the rest stop, or null if the line does not describe one
+	 */
+	public static RestStop parseLine(String line) {
+		List<RestStop> stops = new ArrayList<>(1);
+		byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+		parseLine(ByteBuffer.wrap(bytes), 0, bytes.length, new Tokens(), stops, new MountainMetrics.Parse());
+		return stops.isEmpty() ? null : stops.get(0);
+	}
+
+	/**
+	 * Finds the end of the line that contains the specified position.
+	 *
+	 * @param channel channel of the file
+	 * @param from    position at which to start looking
+	 * @param size    size of the file
+	 * @return position right after the next line break, or the size of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private static long nextLineBreak(FileChannel channel, long from, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = from;
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Reads the rest stop described by the bytes of a single line and adds it to
+	 * the list of rest stops.
+	 *
+	 * @param buffer buffer holding the line
+	 * @param start  index of the first byte of the line
+	 * @param end    index right after the last byte of the line
+	 * @param tokens reusable storage for the positions of the words in the line
+	 * @param stops  list the rest stop is added to
+	 * @param counts counters of the lines read
+	 */
+	private static void parseLine(ByteBuffer buffer, int start, int end, Tokens tokens, List<RestStop> stops,
+			MountainMetrics.Parse counts) {
+		counts.lines++;
+		tokens.split(buffer, start, end);
+		int n = tokens.count;
+		// blank lines and lines with an empty label are skipped
+		if (n == 0) {
+			counts.blankLines++;
+			return;
+		}
+		if (tokens.length(0) == 0) {
+			counts.malformedLines++;
+			return;
+		}
+
+		int food = 0;
+		int raft = 0;
+		int axe = 0;
+		int fallenTree = 0;
+		int river = 0;
+
+		// supplies processing
+		int counter = 1;
+		boolean ended = false;
+		for (int i = 1; i < n; i++) {
+			// prevents any more supplies from being read once
+			// the list of obstacles begins
+			if (tokens.is(buffer, i, RIVER)) {
+				break;
+			}
+			if (tokens.is(buffer, i, FALLEN)) {
+				if (i + 1 == n) {
+					ended = true;
+					break;
+				}
+				if (tokens.is(buffer, i + 1, TREE)) {
+					break;
+				}
+			}
+
+			if (tokens.is(buffer, i, FOOD)) {
+				food++;
+			} else if (tokens.is(buffer, i, RAFT)) {
+				raft++;
+			} else if (tokens.is(buffer, i, AXE)) {
+				axe++;
+			}
+
+			counter++;
+		}
+
+		// obstacles processing
+		for (int i = counter; i < n && !ended; i++) {
+			if (tokens.is(buffer, i, RIVER)) {
+				river++;
+			} else if (tokens.is(buffer, i, FALLEN)) {
+				if (i + 1 == n) {
+					ended = true;
+				} else if (tokens.is(buffer, i + 1, TREE)) {
+					fallenTree++;
+				}
+			}
+		}
+
+		byte[] label = new byte[tokens.length(0)];
+		for (int i = 0; i < label.length; i++) {
+			label[i] = buffer.get(tokens.start[0] + i);
+		}
+		if (ended) {
+			counts.truncatedLines++;
+		}
+		counts.stops++;
+		stops.add(new RestStop(new String(label, StandardCharsets.UTF_8), food, raft, axe, fallenTree, river));
+	}
+
+	/**
+	 * Positions of the words in a line. Words are separated by single spaces, so
+	 * two spaces in a row produce an empty word. As with String.split, empty words
+	 * at the end of the line are dropped.
+	 *
+	 * @author Joshua Forlenza
+	 *
+	 */
+	private static class Tokens {
+
+		int[] start = new int[16];
+		int[] end = new int[16];
+		int count;
+
+		/**
+		 * Splits a line into words.
+		 *
+		 * @param buffer buffer holding the line
+		 * @param from   index of the first byte of the line
+		 * @param to     index right after the last byte of the line
+		 */
+		void split(ByteBuffer buffer, int from, int to) {
+			count = 0;
+			int wordStart = from;
+			for (int i = from; i <= to; i++) {
+				if (i == to || buffer.get(i) == ' ') {
+					if (count == start.length) {
+						start = Arrays.copyOf(start, count * 2);
+						end = Arrays.copyOf(end, count * 2);
+					}
+					start[count] = wordStart;
+					end[count] = i;
+					count++;
+					wordStart = i + 1;
+				}
+			}
+			while (count > 0 && length(count - 1) == 0) {
+				count--;
+			}
+		}
+
+		/**
+		 * Returns the number of bytes in a word.
+		 *
+		 * @param i index of the word
+		 * @return length of the word
+		 */
+		int length(int i) {
+			return end[i] - start[i];
+		}
+
+		/**
+		 * Determines whether a word is the specified keyword.
+		 *
+		 * @param buffer  buffer holding the line
+		 * @param i       index of the word
+		 * @param keyword bytes of the keyword
+		 * @return true if the word and the keyword are the same
+		 */
+		boolean is(ByteBuffer buffer, int i, byte[] keyword) {
+			if (length(i) != keyword.length) {
+				return false;
+			}
+			for (int k = 0; k < keyword.length; k++) {
+				if (buffer.get(start[i] + k) != keyword[k]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
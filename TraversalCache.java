@@ -0,0 +1,266 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps the results of recent traversals of a mountain, so that
+ * repeating a query for a hiker with the same starting supplies does not
+ * explore the mountain again. Results are stored under the modification count
+ * of the mountain along with the food, rafts, and axes of the hiker, so a
+ * result is only reused while the mountain is exactly as it was when the
+ * result was found. As soon as the count changes, every stored result is
+ * dropped.
+ *
+ * The cache is bounded by weight. The weight of a result is the number of rest
+ * stops on all of its paths plus one, and when the total weight goes over the
+ * limit, the least recently used results are evicted. A result that is heavier
+ * than the limit on its own is returned but not stored.
+ *
+ * Like BSTMountain, this class is not safe for use by several threads at once.
+ *
+ * @author Joshua Forlenza
+ *
+ */
+
+public class TraversalCache {
+
+	private final BSTMountain<?> mountain;
+	private final long maxWeight;
+
+	// results in order of use, least recently used first
+	private final LinkedHashMap<Key, List<List<RestStop>>> results = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight;
+	private long version; // modification count of the mountain for the stored results
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Creates a new, empty cache for the specified mountain.
+	 *
+	 * @param mountain  mountain whose traversals are stored
+	 * @param maxWeight most rest stops that the stored paths may hold in total
+	 * @throws IllegalArgumentException if maxWeight is negative
+	 */
+	public TraversalCache(BSTMountain<?> mountain, long maxWeight) {
+		if (maxWeight < 0) {
+			throw new IllegalArgumentException("Invalid weight: maximum weight cannot be negative");
+		}
+		this.mountain = mountain;
+		this.maxWeight = maxWeight;
+		this.version = mountain.getModificationCount();
+	}
+
+	/**
+	 * Returns the paths that reach the bottom of the mountain, in the order in
+	 * which traverse would display them. The paths are taken from the cache if
+	 * they were found before for a hiker with the same supplies, and the mountain
+	 * has not changed since.
+	 *
+	 * @param h Hiker object that traverses down the mountain; it is not modified
+	 * @return unmodifiable list of the paths that reach the bottom of the mountain
+	 */
+	public List<List<RestStop>> paths(Hiker h) {
+		long current = mountain.getModificationCount();
+		if (current != version) {
+			invalidations += results.size();
+			results.clear();
+			weight = 0;
+			version = current;
+		}
+
+		Key key = new Key(current, h.getFood(), h.getRaft(), h.getAxe());
+		List<List<RestStop>> found = results.get(key);
+		if (found != null) {
+			hits++;
+			return found;
+		}
+		misses++;
+
+		ArrayList<List<RestStop>> paths = new ArrayList<>();
+		long[] stops = { 1 };
+		Hiker copy = new Hiker(h.getFood(), h.getRaft(), h.getAxe());
+		mountain.traverse(copy, path -> {
+			paths.add(Collections.unmodifiableList(new ArrayList<>(path)));
+			stops[0] += path.size();
+		});
+		found = Collections.unmodifiableList(paths);
+
+		if (stops[0] <= maxWeight) {
+			results.put(key, found);
+			weight += stops[0];
+			evict();
+		}
+		return found;
+	}
+
+	/**
+	 * Displays the paths that reach the bottom of the mountain, as
+	 * BSTMountain.traverse would.
+	 *
+	 * @param h Hiker object that traverses down the mountain; it is not modified
+	 */
+	public void traverse(Hiker h) {
+		for (List<RestStop> path : paths(h)) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < path.size(); i++) {
+				sb.append(path.get(i).getLabel()).append(' ');
+			}
+			System.out.println(sb);
+		}
+	}
+
+	/**
+	 * Evicts the least recently used results until the total weight is within
+	 * the limit.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<Key, List<List<RestStop>>>> it = results.entrySet().iterator();
+		while (weight > maxWeight && it.hasNext()) {
+			weight -= weightOf(it.next().getValue());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Returns the weight of a stored result.
+	 *
+	 * @param paths paths of the result
+	 * @return the number of rest stops on the paths plus one
+	 */
+	private static long weightOf(List<List<RestStop>> paths) {
+		long stops = 1;
+		for (List<RestStop> path : paths) {
+			stops += path.size();
+		}
+		return stops;
+	}
+
+	/**
+	 * Removes every stored result. The statistics are kept.
+	 */
+	public void clear() {
+		results.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Returns the number of stored results.
+	 *
+	 * @return the number of stored results
+	 */
+	public int size() {
+		return results.size();
+	}
+
+	/**
+	 * Returns the total weight of the stored results.
+	 *
+	 * @return the number of rest stops on the stored paths plus the number of
+	 *         stored results
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Returns the number of queries answered from the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of queries for which the mountain had to be traversed.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of results evicted to stay within the weight limit.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of results dropped because the mountain changed.
+	 *
+	 * @return the number of invalidated results
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Returns the statistics of this cache.
+	 *
+	 * @return string listing the hits, misses, evictions, and invalidations
+	 */
+	@Override
+	public String toString() {
+		return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions + ", invalidations: "
+				+ invalidations + ", entries: " + results.size() + ", weight: " + weight;
+	}
+
+	/**
+	 * Key of a stored result: the modification count of the mountain and the
+	 * starting supplies of the hiker.
+	 */
+	private static final class Key {
+
+		final long version;
+		final int food;
+		final int raft;
+		final int axe;
+
+		/**
+		 * Creates a new key.
+		 *
+		 * @param version modification count of the mountain
+		 * @param food    food the hiker starts with
+		 * @param raft    rafts the hiker starts with
+		 * @param axe     axes the hiker starts with
+		 */
+		Key(long version, int food, int raft, int axe) {
+			this.version = version;
+			this.food = food;
+			this.raft = raft;
+			this.axe = axe;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return version == other.version && food == other.food && raft == other.raft && axe == other.axe;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = Long.hashCode(version);
+			result = 31 * result + food;
+			result = 31 * result + raft;
+			return 31 * result + axe;
+		}
+
+	}
+
+}